@@ -2,8 +2,15 @@ package hello.jdbc;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 
-@SpringBootApplication
+/**
+ * R2DBC 는 ReactiveMemberRepository 에서 직접 구성한다.
+ * 자동 구성을 켜두면 ConnectionFactory 빈 때문에 JDBC DataSource 자동 구성이 빠지고
+ * 트랜잭션 매니저가 2개가 되어 @Transactional 이 어느 것을 쓸지 정하지 못한다.
+ */
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 public class JdbcApplication {
 
 	public static void main(String[] args) {
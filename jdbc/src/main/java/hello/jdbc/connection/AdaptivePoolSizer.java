@@ -0,0 +1,172 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 관측한 처리량/보유 시간/대기로 Hikari 풀 크기를 조절한다.
+ *
+ * 리틀의 법칙: 필요한 커넥션 수 L = 처리량 X * 보유 시간 W
+ * gradient = 기준 보유 시간 / 현재 보유 시간 (Vegas 방식, 1 이면 DB 지연 증가 없음)
+ * - 대기가 있고 지연이 늘지 않았으면 -> 늘린다 (최대 2배)
+ * - 대기가 있는데 지연이 늘었으면 -> DB 포화, size * gradient 로 줄인다
+ * - 대기가 없고 L 이 크기보다 충분히 작으면 -> 1씩 줄인다
+ * 크기는 항상 [minSize, maxSize] 안에서만 움직인다.
+ */
+@Slf4j
+public class AdaptivePoolSizer {
+
+    private static final double TOLERANCE = 0.8;
+    private static final double HEADROOM = 1.2;
+
+    private final InstrumentedDataSource metrics;
+    private final HikariDataSource pool;
+    private final int minSize;
+    private final int maxSize;
+
+    private final AtomicLong grows = new AtomicLong();
+    private final AtomicLong shrinks = new AtomicLong();
+
+    private long lastTickNanos = System.nanoTime();
+    private long lastHoldCount;
+    private long lastHoldNanos;
+    private long lastAcquireCount;
+    private long lastAcquireNanos;
+    private double baselineHoldNanos = Double.NaN;
+    private volatile PoolSizeDecision lastDecision;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param metrics pool 을 감싼 계측 DataSource
+     */
+    public AdaptivePoolSizer(InstrumentedDataSource metrics, HikariDataSource pool, int minSize, int maxSize) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("minSize=" + minSize + " maxSize=" + maxSize);
+        }
+        this.metrics = metrics;
+        this.pool = pool;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        pool.getHikariConfigMXBean().setMaximumPoolSize(clamp(pool.getMaximumPoolSize()));
+    }
+
+    /**
+     * 지난 tick 이후 구간을 보고 풀 크기를 한 번 조정한다.
+     */
+    public synchronized PoolSizeDecision tick() {
+        long now = System.nanoTime();
+        long holdCount = metrics.getHoldHistogram().getCount();
+        long holdNanos = metrics.getHoldHistogram().getTotalNanos();
+        long acquireCount = metrics.getAcquireHistogram().getCount();
+        long acquireNanos = metrics.getAcquireHistogram().getTotalNanos();
+
+        long completed = holdCount - lastHoldCount;
+        long acquired = acquireCount - lastAcquireCount;
+        double elapsedSeconds = Math.max(now - lastTickNanos, 1) / 1e9;
+        double throughput = completed / elapsedSeconds;
+        double avgHoldNanos = completed == 0 ? 0 : (double) (holdNanos - lastHoldNanos) / completed;
+        double avgWaitNanos = acquired == 0 ? 0 : (double) (acquireNanos - lastAcquireNanos) / acquired;
+        double little = throughput * avgHoldNanos / 1e9;
+
+        lastTickNanos = now;
+        lastHoldCount = holdCount;
+        lastHoldNanos = holdNanos;
+        lastAcquireCount = acquireCount;
+        lastAcquireNanos = acquireNanos;
+
+        double gradient = 1.0;
+        if (completed > 0) {
+            if (Double.isNaN(baselineHoldNanos) || avgHoldNanos < baselineHoldNanos) {
+                baselineHoldNanos = avgHoldNanos;
+            } else {
+                //기준값이 오래된 최솟값에 묶이지 않도록 천천히 따라간다
+                baselineHoldNanos += (avgHoldNanos - baselineHoldNanos) * 0.05;
+            }
+            gradient = Math.min(1.0, Math.max(0.5, baselineHoldNanos / avgHoldNanos));
+        }
+
+        int size = pool.getMaximumPoolSize();
+        int pending = metrics.getPending();
+        int newSize = size;
+        String reason = "steady";
+        if (pending > 0 || (completed > 0 && avgWaitNanos > avgHoldNanos)) {
+            if (gradient >= TOLERANCE) {
+                newSize = size + Math.max(1, Math.min(Math.max(pending, 1), size));
+                reason = "queueing";
+            } else {
+                newSize = (int) Math.ceil(size * gradient);
+                reason = "latency-inflation";
+            }
+        } else if (size > minSize && little * HEADROOM < size - 1) {
+            newSize = size - 1;
+            reason = "idle";
+        }
+        newSize = clamp(newSize);
+
+        if (newSize > size) {
+            grows.incrementAndGet();
+        } else if (newSize < size) {
+            shrinks.incrementAndGet();
+        }
+        if (newSize != size) {
+            HikariConfigMXBean config = pool.getHikariConfigMXBean();
+            if (config.getMinimumIdle() > newSize) {
+                config.setMinimumIdle(newSize);
+            }
+            config.setMaximumPoolSize(newSize);
+            log.info("pool resize {} -> {} reason={} X={}/s W={}us L={}", size, newSize, reason,
+                    (long) throughput, (long) (avgHoldNanos / 1000), String.format("%.2f", little));
+        }
+
+        PoolSizeDecision decision = new PoolSizeDecision(size, newSize, throughput,
+                (long) (avgHoldNanos / 1000), (long) (avgWaitNanos / 1000), little, gradient, pending, reason);
+        lastDecision = decision;
+        return decision;
+    }
+
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "adaptive-pool-sizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::tick, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public int getCurrentSize() {
+        return pool.getMaximumPoolSize();
+    }
+
+    public long getGrows() {
+        return grows.get();
+    }
+
+    public long getShrinks() {
+        return shrinks.get();
+    }
+
+    public PoolSizeDecision getLastDecision() {
+        return lastDecision;
+    }
+
+    private int clamp(int size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+}
@@ -1,7 +1,22 @@
 package hello.jdbc.connection;
 
+import java.util.Arrays;
+
 public abstract class ConnectionConst {
-    public static final String URL = "jdbc:h2:tcp://localhost/~/test";
+    public static final String TCP_URL = "jdbc:h2:tcp://localhost/~/test";
+    /**
+     * 임베디드 메모리 DB - 커넥션을 열 때 schema.sql 로 member 테이블을 만든다.
+     */
+    public static final String MEM_URL = "jdbc:h2:mem:test;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+    /**
+     * -Dspring.profiles.active=mem 이면 MEM_URL (테스트 기본값, build.gradle)
+     */
+    public static final String URL = isMemProfile() ? MEM_URL : TCP_URL;
     public static final String USERNAME = "sa";
     public static final String PASSWORD = "";
+
+    private static boolean isMemProfile() {
+        String profiles = System.getProperty("spring.profiles.active", "");
+        return Arrays.stream(profiles.split(",")).map(String::trim).anyMatch("mem"::equals);
+    }
 }
@@ -0,0 +1,5 @@
+package hello.jdbc.connection;
+
+public enum DataSourceRoute {
+    PRIMARY, REPLICA
+}
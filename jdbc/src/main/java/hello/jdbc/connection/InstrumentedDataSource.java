@@ -0,0 +1,244 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * 커넥션 풀 계측 래퍼
+ * - 커넥션 획득 대기 시간(실패 포함) / 보유 시간(트랜잭션 단위) 히스토그램, 획득 실패 수
+ * - active/idle/pending 게이지 (HikariDataSource 면 풀 값을 그대로 사용)
+ * - 오래 반환되지 않는 커넥션 경고, 획득 스택은 stackSampleRate 건마다 1번만 수집
+ *
+ * 리포지토리와 트랜잭션 매니저에 같은 인스턴스를 넘겨야 한다.
+ */
+@Slf4j
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    @Getter
+    private final LatencyHistogram acquireHistogram = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram holdHistogram = new LatencyHistogram();
+
+    private final Map<Connection, Lease> leases = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong leakWarnings = new AtomicLong();
+    private final AtomicLong acquireFailures = new AtomicLong();
+    private final long leakThresholdNanos;
+    private final int stackSampleRate;
+
+    private ScheduledExecutorService leakChecker;
+    private ObjectName objectName;
+
+    /**
+     * @param leakThreshold 이 시간보다 오래 보유하면 누수 경고
+     * @param stackSampleRate 획득 스택 수집 주기 (1 = 매번, 0 = 수집 안 함)
+     */
+    public InstrumentedDataSource(DataSource target, Duration leakThreshold, int stackSampleRate) {
+        super(target);
+        this.leakThresholdNanos = leakThreshold.toNanos();
+        this.stackSampleRate = stackSampleRate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return acquire(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return acquire(() -> super.getConnection(username, password));
+    }
+
+    /**
+     * 획득 대기 시간은 성공/실패와 관계없이 기록한다. (풀 고갈로 타임아웃된 대기도 히스토그램에 남는다)
+     */
+    private Connection acquire(ConnectionSupplier supplier) throws SQLException {
+        pending.incrementAndGet();
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            Connection connection = track(supplier.get());
+            acquired = true;
+            return connection;
+        } finally {
+            pending.decrementAndGet();
+            acquireHistogram.record(System.nanoTime() - start);
+            if (!acquired) {
+                acquireFailures.incrementAndGet();
+            }
+        }
+    }
+
+    private Connection track(Connection target) {
+        long acquiredAt = System.nanoTime();
+        long seq = sequence.incrementAndGet();
+        Throwable stack = stackSampleRate > 0 && seq % stackSampleRate == 0
+                ? new Throwable("connection acquired") : null;
+        Lease lease = new Lease(acquiredAt, Thread.currentThread().getName(), stack);
+
+        Connection proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (p, method, args) -> {
+                    //leases 의 키로 쓰므로 프록시 자신 기준으로 비교
+                    if (method.getName().equals("equals")) {
+                        return p == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(p);
+                    }
+                    if (method.getName().equals("close") && leases.remove(p) != null) {
+                        holdHistogram.record(System.nanoTime() - lease.acquiredAt);
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+        leases.put(proxy, lease);
+        return proxy;
+    }
+
+    /**
+     * 누수 의심 커넥션을 찾아 한 번씩 경고한다.
+     * @return 이번에 새로 경고한 수
+     */
+    public int checkLeaks() {
+        long now = System.nanoTime();
+        int warned = 0;
+        for (Lease lease : leases.values()) {
+            long held = now - lease.acquiredAt;
+            if (held < leakThresholdNanos || lease.warned) {
+                continue;
+            }
+            lease.warned = true;
+            leakWarnings.incrementAndGet();
+            warned++;
+            if (lease.stack != null) {
+                log.warn("connection leak suspected held={}ms thread={}",
+                        TimeUnit.NANOSECONDS.toMillis(held), lease.threadName, lease.stack);
+            } else {
+                log.warn("connection leak suspected held={}ms thread={}",
+                        TimeUnit.NANOSECONDS.toMillis(held), lease.threadName);
+            }
+        }
+        return warned;
+    }
+
+    /**
+     * 주기적으로 checkLeaks 실행
+     */
+    public synchronized void startLeakDetection(Duration interval) {
+        if (leakChecker != null) {
+            return;
+        }
+        leakChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pool-leak-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        leakChecker.scheduleWithFixedDelay(this::checkLeaks, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 플랫폼 MBeanServer 에 hello.jdbc:type=PoolMetrics,name={poolName} 으로 등록
+     */
+    public synchronized ObjectName registerMBean(String poolName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("hello.jdbc:type=PoolMetrics,name=" + poolName);
+            server.registerMBean(new PoolMetrics(this), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void close() {
+        if (leakChecker != null) {
+            leakChecker.shutdownNow();
+            leakChecker = null;
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                log.warn("mbean unregister failed name={}", objectName, e);
+            }
+            objectName = null;
+        }
+    }
+
+    public int getActive() {
+        HikariPoolMXBean pool = hikariPool();
+        return pool != null ? pool.getActiveConnections() : leases.size();
+    }
+
+    public int getIdle() {
+        HikariPoolMXBean pool = hikariPool();
+        return pool != null ? pool.getIdleConnections() : 0;
+    }
+
+    public int getPending() {
+        HikariPoolMXBean pool = hikariPool();
+        return pool != null ? pool.getThreadsAwaitingConnection() : pending.get();
+    }
+
+    public long getLeakWarnings() {
+        return leakWarnings.get();
+    }
+
+    /**
+     * 획득에 실패한 수 (풀 타임아웃, DB 연결 실패)
+     */
+    public long getAcquireFailures() {
+        return acquireFailures.get();
+    }
+
+    private HikariPoolMXBean hikariPool() {
+        if (getTargetDataSource() instanceof HikariDataSource hikari) {
+            return hikari.getHikariPoolMXBean();
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    private static class Lease {
+        private final long acquiredAt;
+        private final String threadName;
+        private final Throwable stack;
+        private volatile boolean warned;
+
+        private Lease(long acquiredAt, String threadName, Throwable stack) {
+            this.acquiredAt = acquiredAt;
+            this.threadName = threadName;
+            this.stack = stack;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package hello.jdbc.connection;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * InstrumentedDataSource 지표를 JMX 표준 MBean 으로 노출
+ */
+@RequiredArgsConstructor
+public class PoolMetrics implements PoolMetricsMBean {
+
+    private final InstrumentedDataSource dataSource;
+
+    @Override
+    public long getAcquisitions() {
+        //히스토그램에는 실패한 대기도 들어 있다
+        return dataSource.getAcquireHistogram().getCount() - dataSource.getAcquireFailures();
+    }
+
+    @Override
+    public long getAcquireFailures() {
+        return dataSource.getAcquireFailures();
+    }
+
+    @Override
+    public long getAcquireAverageMicros() {
+        return dataSource.getAcquireHistogram().getAverageMicros();
+    }
+
+    @Override
+    public long getAcquireP50Micros() {
+        return dataSource.getAcquireHistogram().percentileMicros(0.5);
+    }
+
+    @Override
+    public long getAcquireP99Micros() {
+        return dataSource.getAcquireHistogram().percentileMicros(0.99);
+    }
+
+    @Override
+    public long getAcquireMaxMicros() {
+        return dataSource.getAcquireHistogram().getMaxMicros();
+    }
+
+    @Override
+    public long getHoldAverageMicros() {
+        return dataSource.getHoldHistogram().getAverageMicros();
+    }
+
+    @Override
+    public long getHoldP99Micros() {
+        return dataSource.getHoldHistogram().percentileMicros(0.99);
+    }
+
+    @Override
+    public long getHoldMaxMicros() {
+        return dataSource.getHoldHistogram().getMaxMicros();
+    }
+
+    @Override
+    public int getActive() {
+        return dataSource.getActive();
+    }
+
+    @Override
+    public int getIdle() {
+        return dataSource.getIdle();
+    }
+
+    @Override
+    public int getPending() {
+        return dataSource.getPending();
+    }
+
+    @Override
+    public long getLeakWarnings() {
+        return dataSource.getLeakWarnings();
+    }
+}
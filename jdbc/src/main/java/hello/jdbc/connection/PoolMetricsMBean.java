@@ -0,0 +1,20 @@
+package hello.jdbc.connection;
+
+/**
+ * JMX 로 노출하는 커넥션 풀 지표
+ */
+public interface PoolMetricsMBean {
+    long getAcquisitions();
+    long getAcquireFailures();
+    long getAcquireAverageMicros();
+    long getAcquireP50Micros();
+    long getAcquireP99Micros();
+    long getAcquireMaxMicros();
+    long getHoldAverageMicros();
+    long getHoldP99Micros();
+    long getHoldMaxMicros();
+    int getActive();
+    int getIdle();
+    int getPending();
+    long getLeakWarnings();
+}
@@ -0,0 +1,19 @@
+package hello.jdbc.connection;
+
+import lombok.Data;
+
+/**
+ * AdaptivePoolSizer 의 한 번의 판단 결과
+ */
+@Data
+public class PoolSizeDecision {
+    private final int previousSize;
+    private final int newSize;
+    private final double throughputPerSecond;
+    private final long averageHoldMicros;
+    private final long averageWaitMicros;
+    private final double littleConcurrency;
+    private final double gradient;
+    private final int pending;
+    private final String reason;
+}
@@ -0,0 +1,113 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 읽기/쓰기 분리 라우팅
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))이면 replica, 나머지는 primary 로 보낸다.
+ * replica 지연이 maxLag 를 넘거나 측정에 실패하면 primary 로 fallback 한다.
+ *
+ * 주의! DataSourceTransactionManager 는 트랜잭션 동기화(readOnly 표시) 전에 커넥션을 획득하므로
+ * 반드시 LazyConnectionDataSourceProxy 로 감싸서 사용해야 한다. -> lazy() 사용
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<DataSourceRoute, DataSource> targets = new EnumMap<>(DataSourceRoute.class);
+    private final Map<DataSourceRoute, AtomicLong> routed = new EnumMap<>(DataSourceRoute.class);
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final ReplicaLagProbe lagProbe;
+    private final long maxLagNanos;
+    private final long probeIntervalNanos;
+
+    private volatile boolean replicaHealthy = true;
+    private volatile long lastProbeNanos;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                                      ReplicaLagProbe lagProbe, Duration maxLag, Duration probeInterval) {
+        this.lagProbe = lagProbe;
+        this.maxLagNanos = maxLag.toNanos();
+        this.probeIntervalNanos = probeInterval.toNanos();
+        this.lastProbeNanos = System.nanoTime() - probeIntervalNanos;
+
+        targets.put(DataSourceRoute.PRIMARY, primary);
+        targets.put(DataSourceRoute.REPLICA, replica);
+        for (DataSourceRoute route : DataSourceRoute.values()) {
+            routed.put(route, new AtomicLong());
+        }
+        setTargetDataSources(Map.<Object, Object>of(DataSourceRoute.PRIMARY, primary, DataSourceRoute.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * 트랜잭션 매니저와 리포지토리에 넘길 DataSource
+     */
+    public static DataSource lazy(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceRoute route = DataSourceRoute.PRIMARY;
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (isReplicaHealthy()) {
+                route = DataSourceRoute.REPLICA;
+            } else {
+                fallbacks.incrementAndGet();
+            }
+        }
+        routed.get(route).incrementAndGet();
+        log.debug("route={}", route);
+        return route;
+    }
+
+    private boolean isReplicaHealthy() {
+        long now = System.nanoTime();
+        if (now - lastProbeNanos >= probeIntervalNanos) {
+            lastProbeNanos = now;
+            try {
+                Duration lag = lagProbe.currentLag();
+                replicaHealthy = lag.toNanos() <= maxLagNanos;
+                if (!replicaHealthy) {
+                    log.warn("replica lag={} exceeds maxLag, routing reads to primary", lag);
+                }
+            } catch (Exception e) {
+                replicaHealthy = false;
+                log.warn("replica lag probe failed, routing reads to primary", e);
+            }
+        }
+        return replicaHealthy;
+    }
+
+    public long getRoutedCount(DataSourceRoute route) {
+        return routed.get(route).get();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.get();
+    }
+
+    /**
+     * 라우트별 커넥션 풀 상태. HikariDataSource 가 아니면 풀 정보는 -1
+     */
+    public RoutePoolStats getPoolStats(DataSourceRoute route) {
+        DataSource target = targets.get(route);
+        if (target instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return new RoutePoolStats(route, getRoutedCount(route),
+                    pool.getActiveConnections(), pool.getIdleConnections(), pool.getThreadsAwaitingConnection());
+        }
+        return new RoutePoolStats(route, getRoutedCount(route), -1, -1, -1);
+    }
+}
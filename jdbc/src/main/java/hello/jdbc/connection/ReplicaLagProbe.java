@@ -0,0 +1,12 @@
+package hello.jdbc.connection;
+
+import java.time.Duration;
+
+/**
+ * 레플리카 복제 지연 측정
+ * 측정에 실패하면 예외를 던진다. (라우팅은 primary 로 fallback)
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+    Duration currentLag() throws Exception;
+}
@@ -0,0 +1,13 @@
+package hello.jdbc.connection;
+
+import lombok.Data;
+
+@Data
+public class RoutePoolStats {
+
+    private final DataSourceRoute route;
+    private final long routedConnections;
+    private final int active;
+    private final int idle;
+    private final int pending;
+}
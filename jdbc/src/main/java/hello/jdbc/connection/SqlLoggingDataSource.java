@@ -0,0 +1,256 @@
+package hello.jdbc.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * SQL 실행 기록 프록시
+ * 문장마다 바인딩 수, 실행 시간, 처리 행 수를 SqlStats 에 누적하고
+ * slowThreshold 를 넘으면 hello.jdbc.slowquery 로거(logback.xml 의 롤링 파일)에 남긴다.
+ * explainSampleRate 건의 느린 쿼리마다 1번은 같은 파라미터로 EXPLAIN 을 실행해서 실행 계획도 같이 남긴다.
+ *
+ * 조회 행 수는 ResultSet 을 닫을 때 확정된다.
+ * 꺼져 있으면(enabled=false) 원본 커넥션을 그대로 돌려주므로 문장당 추가 비용이 없다.
+ */
+@Slf4j
+public class SqlLoggingDataSource extends DelegatingDataSource {
+
+    private static final Logger slowLog = LoggerFactory.getLogger("hello.jdbc.slowquery");
+
+    private final Map<String, SqlStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong slowStatements = new AtomicLong();
+    private final long slowThresholdNanos;
+    private final int explainSampleRate;
+
+    private volatile boolean enabled = true;
+
+    /**
+     * @param explainSampleRate 느린 쿼리 N 건마다 EXPLAIN 1번 (0 = 사용 안 함)
+     */
+    public SqlLoggingDataSource(DataSource target, Duration slowThreshold, int explainSampleRate) {
+        super(target);
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.explainSampleRate = explainSampleRate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection con = super.getConnection();
+        return enabled ? wrap(con) : con;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection con = super.getConnection(username, password);
+        return enabled ? wrap(con) : con;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public SqlStats getStats(String sql) {
+        return stats.get(sql);
+    }
+
+    public Map<String, SqlStats> getStats() {
+        return Map.copyOf(stats);
+    }
+
+    public long getSlowStatements() {
+        return slowStatements.get();
+    }
+
+    private Connection wrap(Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (p, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return p == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(p);
+                    }
+                    Object result = invoke(target, method, args);
+                    if (result instanceof CallableStatement statement) {
+                        return wrapStatement(CallableStatement.class, statement, (String) args[0], target);
+                    }
+                    if (result instanceof PreparedStatement statement) {
+                        return wrapStatement(PreparedStatement.class, statement, (String) args[0], target);
+                    }
+                    if (result instanceof Statement statement) {
+                        return wrapStatement(Statement.class, statement, null, target);
+                    }
+                    return result;
+                });
+    }
+
+    private <T extends Statement> T wrapStatement(Class<T> type, T target, String sql, Connection connection) {
+        StatementHandler handler = new StatementHandler(target, sql, connection);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private void record(String sql, Object[] params, int binds, long elapsedNanos, long rows, Connection connection) {
+        if (sql == null) {
+            return;
+        }
+        boolean slow = elapsedNanos >= slowThresholdNanos;
+        stats.computeIfAbsent(sql, SqlStats::new).record(binds, elapsedNanos, rows, slow);
+        if (!slow) {
+            return;
+        }
+        long seq = slowStatements.incrementAndGet();
+        String plan = explainSampleRate > 0 && seq % explainSampleRate == 0 ? explain(sql, params, binds, connection) : null;
+        slowLog.warn("slow query {}ms rows={} binds={} sql={}{}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                rows, binds, sql, plan == null ? "" : " plan=" + plan);
+    }
+
+    private String explain(String sql, Object[] params, int binds, Connection connection) {
+        String lower = sql.trim().toLowerCase(Locale.ROOT);
+        if (!(lower.startsWith("select") || lower.startsWith("update") || lower.startsWith("delete"))) {
+            return null;
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement("explain " + sql)) {
+            for (int i = 1; i <= binds; i++) {
+                pstmt.setObject(i, params != null && i < params.length ? params[i] : null);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            log.debug("explain failed sql={}", sql, e);
+            return null;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Statement/PreparedStatement/CallableStatement 공용 핸들러
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final Connection connection;
+        private String sql;
+        private int binds;
+        private Object[] params;
+
+        private StatementHandler(Statement target, String sql, Connection connection) {
+            this.target = target;
+            this.sql = sql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, args[1]);
+            } else if (name.equals("clearParameters")) {
+                binds = 0;
+                params = null;
+            } else if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            return SqlLoggingDataSource.invoke(target, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            binds = Math.max(binds, index);
+            if (explainSampleRate > 0) {
+                if (params == null || params.length <= index) {
+                    params = Arrays.copyOf(params == null ? new Object[0] : params, Math.max(index + 1, 8));
+                }
+                params[index] = value;
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            if (args != null && args.length > 0 && args[0] instanceof String statementSql) {
+                sql = statementSql;
+            }
+            long start = System.nanoTime();
+            Object result = SqlLoggingDataSource.invoke(target, method, args);
+            long elapsed = System.nanoTime() - start;
+
+            if (result instanceof ResultSet rs) {
+                return wrapResultSet(rs, elapsed);
+            }
+            long rows = -1;
+            if (result instanceof Integer count) {
+                rows = count;
+            } else if (result instanceof Long count) {
+                rows = count;
+            } else if (result instanceof int[] counts) {
+                rows = Arrays.stream(counts).filter(c -> c > 0).asLongStream().sum();
+            } else if (result instanceof long[] counts) {
+                rows = Arrays.stream(counts).filter(c -> c > 0).sum();
+            } else if (result instanceof Boolean hasResultSet && !hasResultSet) {
+                rows = target.getUpdateCount();
+            }
+            record(sql, params, binds, elapsed, rows, connection);
+            return result;
+        }
+
+        private ResultSet wrapResultSet(ResultSet target, long elapsed) {
+            String executedSql = sql;
+            Object[] executedParams = params == null ? null : params.clone();
+            int executedBinds = binds;
+            long[] rows = {0};
+            boolean[] closed = {false};
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (p, method, args) -> {
+                        if (method.getName().equals("equals")) {
+                            return p == args[0];
+                        }
+                        if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(p);
+                        }
+                        Object result = SqlLoggingDataSource.invoke(target, method, args);
+                        if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                            rows[0]++;
+                        } else if (method.getName().equals("close") && !closed[0]) {
+                            closed[0] = true;
+                            record(executedSql, executedParams, executedBinds, elapsed, rows[0], connection);
+                        }
+                        return result;
+                    });
+        }
+    }
+}
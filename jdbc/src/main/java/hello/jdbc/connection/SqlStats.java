@@ -0,0 +1,71 @@
+package hello.jdbc.connection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL 문장 하나의 누적 실행 통계
+ */
+public class SqlStats {
+
+    private final String sql;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder slowCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private volatile int bindCount;
+
+    public SqlStats(String sql) {
+        this.sql = sql;
+    }
+
+    void record(int binds, long elapsedNanos, long rowCount, boolean slow) {
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+        if (slow) {
+            slowCount.increment();
+        }
+        bindCount = binds;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSlowCount() {
+        return slowCount.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public int getBindCount() {
+        return bindCount;
+    }
+
+    public long getAverageMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / n);
+    }
+
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "SqlStats(sql=" + sql + ", count=" + getCount() + ", slow=" + getSlowCount()
+                + ", rows=" + getRows() + ", avg=" + getAverageMicros() + "us, max=" + getMaxMicros() + "us)";
+    }
+}
@@ -0,0 +1,169 @@
+package hello.jdbc.connection;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * 작업(Task)별로 열려 있는 Statement 를 기억해서 다른 스레드에서 Statement.cancel() 할 수 있게 한다.
+ * begin() 과 end() 사이에 현재 스레드가 만든 Statement 만 기록하고, close() 되면 기록에서 지운다.
+ * 끝난 작업은 cancel 해도 아무 일도 없으므로 늦게 온 타임아웃이 다음 작업의 Statement 를 취소하지 않는다.
+ * 리포지토리와 트랜잭션 매니저에 같은 인스턴스를 넘겨야 한다.
+ */
+@Slf4j
+public class StatementTrackingDataSource extends DelegatingDataSource {
+
+    private final ThreadLocal<Task> currentTask = new ThreadLocal<>();
+
+    public StatementTrackingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(super.getConnection(username, password));
+    }
+
+    /**
+     * 현재 스레드에서 작업을 시작한다. 반드시 end() 와 짝을 맞춘다.
+     */
+    public Task begin() {
+        Task task = new Task();
+        currentTask.set(task);
+        return task;
+    }
+
+    /**
+     * 작업을 끝낸다. 이후 cancel(task) 는 아무것도 취소하지 않는다.
+     */
+    public void end(Task task) {
+        if (currentTask.get() == task) {
+            currentTask.remove();
+        }
+        task.end();
+    }
+
+    /**
+     * task 가 실행 중인 Statement 를 취소한다. 이후 task 가 만드는 Statement 도 바로 취소한다.
+     * @return 취소 요청을 보냈으면 true
+     */
+    public boolean cancel(Task task) {
+        return task.cancel();
+    }
+
+    private Connection track(Connection target) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (p, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return p == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(p);
+                    }
+                    Object result = invoke(target, method, args);
+                    Task task = currentTask.get();
+                    if (task != null && result instanceof Statement statement) {
+                        return task.register(statement, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * 작업 하나가 연 Statement 목록
+     */
+    public static class Task {
+        private final Set<Statement> statements = new HashSet<>();
+        private boolean canceled;
+        private boolean ended;
+
+        private Statement register(Statement target, Class<?> type) throws SQLException {
+            Statement statement = (Statement) Proxy.newProxyInstance(
+                    type.getClassLoader(), new Class<?>[]{type},
+                    (p, method, args) -> {
+                        if (method.getName().equals("equals")) {
+                            return p == args[0];
+                        }
+                        if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(p);
+                        }
+                        if (method.getName().equals("close")) {
+                            unregister(target);
+                        }
+                        return invoke(target, method, args);
+                    });
+            boolean cancelNow;
+            synchronized (this) {
+                cancelNow = canceled;
+                if (!cancelNow && !ended) {
+                    statements.add(target);
+                }
+            }
+            if (cancelNow) {
+                target.cancel();
+            }
+            return statement;
+        }
+
+        private synchronized void unregister(Statement statement) {
+            statements.remove(statement);
+        }
+
+        private synchronized void end() {
+            ended = true;
+            statements.clear();
+        }
+
+        private boolean cancel() {
+            List<Statement> running;
+            synchronized (this) {
+                if (ended) {
+                    return false;
+                }
+                canceled = true;
+                running = new ArrayList<>(statements);
+            }
+            boolean sent = false;
+            for (Statement statement : running) {
+                try {
+                    statement.cancel();
+                    sent = true;
+                } catch (SQLException e) {
+                    log.warn("statement cancel failed", e);
+                }
+            }
+            if (sent) {
+                log.info("statement canceled count={}", running.size());
+            }
+            return sent;
+        }
+
+        public synchronized int getOpenStatements() {
+            return statements.size();
+        }
+    }
+}
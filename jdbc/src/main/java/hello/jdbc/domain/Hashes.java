@@ -0,0 +1,32 @@
+package hello.jdbc.domain;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * 64bit 해시 (샤드 링, 블룸 필터, 메모리 맵 키 공용)
+ * 문자열은 UTF-8 바이트에 FNV-1a 를 적용한 뒤 murmur3 fmix64 로 비트를 섞는다.
+ * 주의! 샤드 배치가 이 값에 의존하므로 알고리즘을 바꾸면 회원이 다른 샤드로 옮겨진다.
+ */
+public abstract class Hashes {
+
+    public static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return mix64(h);
+    }
+
+    /**
+     * murmur3 fmix64 - 입력 1bit 변화가 출력 전체에 퍼진다.
+     */
+    public static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
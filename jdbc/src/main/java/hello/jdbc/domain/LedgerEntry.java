@@ -0,0 +1,25 @@
+package hello.jdbc.domain;
+
+import lombok.Data;
+
+@Data
+public class LedgerEntry {
+
+    private long seq;
+    private String memberId;
+    private int delta;
+
+    public LedgerEntry() {
+    }
+
+    public LedgerEntry(String memberId, int delta) {
+        this.memberId = memberId;
+        this.delta = delta;
+    }
+
+    public LedgerEntry(long seq, String memberId, int delta) {
+        this.seq = seq;
+        this.memberId = memberId;
+        this.delta = delta;
+    }
+}
@@ -0,0 +1,26 @@
+package hello.jdbc.domain;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 회원 ID 문자열 중복 제거
+ * DB 에서 읽을 때마다 새 String 이 만들어지므로, 같은 회원을 여러 캐시에 오래 들고 있으면 ID 가 중복된다.
+ * String.intern() 과 달리 인스턴스별 풀이라 clear() 로 비울 수 있다.
+ */
+public class MemberIdInterner {
+
+    private final ConcurrentHashMap<String, String> ids = new ConcurrentHashMap<>();
+
+    public String intern(String memberId) {
+        String existing = ids.putIfAbsent(memberId, memberId);
+        return existing != null ? existing : memberId;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public void clear() {
+        ids.clear();
+    }
+}
@@ -0,0 +1,85 @@
+package hello.jdbc.domain;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * 불변 회원 값 - 캐시/메모리 계층용
+ * hashCode 는 생성 시 한 번만 계산한다. (객체 헤더 뒤 패딩 자리에 들어가서 크기는 Member 와 같다)
+ * 복사 없이 공유해도 안전하다. 기존 코드와는 from(Member) / toMember() 로 변환한다.
+ */
+public final class MemberValue {
+
+    private final String memberId;
+    private final int money;
+    private final int hash;
+
+    private MemberValue(String memberId, int money) {
+        this.memberId = Objects.requireNonNull(memberId, "memberId");
+        this.money = money;
+        this.hash = 31 * memberId.hashCode() + money;
+    }
+
+    public static MemberValue of(String memberId, int money) {
+        return new MemberValue(memberId, money);
+    }
+
+    public static MemberValue from(Member member) {
+        return new MemberValue(member.getMemberId(), member.getMoney());
+    }
+
+    /**
+     * 현재 행을 읽는다. (rs.next() 는 호출하는 쪽에서)
+     */
+    public static MemberValue from(ResultSet rs) throws SQLException {
+        return new MemberValue(rs.getString("member_id"), rs.getInt("money"));
+    }
+
+    /**
+     * 같은 ID 문자열을 interner 로 하나만 남긴다. 같은 회원을 여러 번 적재하는 캐시용
+     */
+    public static MemberValue from(ResultSet rs, MemberIdInterner interner) throws SQLException {
+        return new MemberValue(interner.intern(rs.getString("member_id")), rs.getInt("money"));
+    }
+
+    public MemberValue withMoney(int money) {
+        return money == this.money ? this : new MemberValue(memberId, money);
+    }
+
+    /**
+     * 가변 Member 로 변환 - 매번 새 객체
+     */
+    public Member toMember() {
+        return new Member(memberId, money);
+    }
+
+    public String getMemberId() {
+        return memberId;
+    }
+
+    public int getMoney() {
+        return money;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MemberValue other)) {
+            return false;
+        }
+        return hash == other.hash && money == other.money && memberId.equals(other.memberId);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "MemberValue(memberId=" + memberId + ", money=" + money + ")";
+    }
+}
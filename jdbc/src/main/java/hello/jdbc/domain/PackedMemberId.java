@@ -0,0 +1,109 @@
+package hello.jdbc.domain;
+
+/**
+ * 회원 ID 압축 키 - 메모리 안의 맵/캐시/블룸 필터 키 용도
+ * 16자 이하 ASCII(1~127) ID 는 글자당 1바이트로 long 두 개(lo = 0~7번째, hi = 8~15번째)에 담는다.
+ * 남는 바이트는 0 이므로 길이는 따로 저장하지 않는다.
+ * 그 밖의 ID 는 String 을 그대로 보관한다. (fallback)
+ *
+ * 같은 ID 는 항상 같은 형태로 인코딩되므로 equals/hashCode 는 인코딩된 값만 비교한다.
+ * DB 컬럼과 바인딩은 그대로 String 을 사용한다. (toString())
+ */
+public final class PackedMemberId {
+
+    private static final int MAX_PACKED_LENGTH = 16;
+
+    private final long lo;
+    private final long hi;
+    private final String fallback;
+
+    private PackedMemberId(long lo, long hi, String fallback) {
+        this.lo = lo;
+        this.hi = hi;
+        this.fallback = fallback;
+    }
+
+    public static PackedMemberId of(String memberId) {
+        int length = memberId.length();
+        if (length > MAX_PACKED_LENGTH) {
+            return new PackedMemberId(0, 0, memberId);
+        }
+        long lo = 0;
+        long hi = 0;
+        for (int i = 0; i < length; i++) {
+            char c = memberId.charAt(i);
+            if (c == 0 || c > 127) {
+                return new PackedMemberId(0, 0, memberId);
+            }
+            if (i < 8) {
+                lo |= (long) c << (i * 8);
+            } else {
+                hi |= (long) c << ((i - 8) * 8);
+            }
+        }
+        return new PackedMemberId(lo, hi, null);
+    }
+
+    public boolean isPacked() {
+        return fallback == null;
+    }
+
+    public int length() {
+        if (fallback != null) {
+            return fallback.length();
+        }
+        return hi != 0 ? 8 + bytes(hi) : bytes(lo);
+    }
+
+    /**
+     * 블룸 필터 등에서 쓰는 64비트 해시 - 섞는 단계는 Hashes.mix64 (murmur3 fmix64)
+     * 메모리에서만 쓰는 값이라 예전 splitmix64 마무리 단계와 값이 달라도 저장된 데이터에는 영향이 없다.
+     */
+    public long hash64() {
+        if (fallback != null) {
+            return Hashes.mix64(fallback.hashCode());
+        }
+        return Hashes.mix64(lo * 0x9E3779B97F4A7C15L ^ hi);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PackedMemberId other)) {
+            return false;
+        }
+        if (fallback != null || other.fallback != null) {
+            return fallback != null && fallback.equals(other.fallback);
+        }
+        return lo == other.lo && hi == other.hi;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = hash64();
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * 원래 ID 문자열 - 호출할 때마다 만든다.
+     */
+    @Override
+    public String toString() {
+        if (fallback != null) {
+            return fallback;
+        }
+        int length = length();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            long word = i < 8 ? lo : hi;
+            chars[i] = (char) ((word >>> ((i % 8) * 8)) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static int bytes(long word) {
+        return (64 - Long.numberOfLeadingZeros(word) + 7) / 8;
+    }
+}
@@ -0,0 +1,91 @@
+package hello.jdbc.export;
+
+import hello.jdbc.repository.QueryTimeoutPolicy;
+import hello.jdbc.repository.QueryTimeoutPolicy.Operation;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 회원 잔액 전체 덤프 (야간 정산용)
+ * 읽기 전용 트랜잭션 안에서 단일 SELECT 를 forward-only 커서로 스트리밍하면서
+ * MemberBalanceFileWriter 로 바로 기록한다. List<Member> 로 전부 올리지 않는다.
+ * 끝까지 기록한 파일만 대상 경로에 나타난다. (임시 파일 + ATOMIC_MOVE)
+ */
+@Slf4j
+public class MemberBalanceExporter {
+
+    private static final String SQL = "select member_id, money from member order by member_id";
+
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+
+    public MemberBalanceExporter(DataSource dataSource) {
+        this(dataSource, 1000);
+    }
+
+    public MemberBalanceExporter(DataSource dataSource, int fetchSize) {
+        //전체 조회 - 스캔 타임아웃 적용
+        this.template = QueryTimeoutPolicy.defaults().template(dataSource, Operation.SCAN);
+        this.template.setFetchSize(fetchSize);
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.txTemplate.setReadOnly(true);
+        this.txTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * 같은 디렉터리의 임시 파일에 다 쓴 뒤 file 로 원자적으로 교체한다.
+     * 중간에 실패하면 임시 파일만 지우고 이전 파일은 그대로 둔다.
+     * @return 기록한 행 수
+     */
+    public long export(Path file) {
+        long start = System.nanoTime();
+        Path temp = createTempFile(file);
+        Long rows;
+        try {
+            rows = txTemplate.execute(status -> {
+                try (MemberBalanceFileWriter writer = new MemberBalanceFileWriter(temp)) {
+                    template.query(
+                            con -> con.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY),
+                            (ResultSet rs) -> writer.append(rs.getString(1), rs.getInt(2)));
+                    writer.finish();
+                    return writer.getTotalRows();
+                }
+            });
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new IllegalStateException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+        log.info("member balance export rows={}, file={}, elapsedMs={}", rows, file, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    private static Path createTempFile(Path file) {
+        Path target = file.toAbsolutePath();
+        try {
+            return Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            log.warn("temp export file delete failed file={}", temp, e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package hello.jdbc.export;
+
+import static hello.jdbc.export.MemberBalanceFormat.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * 회원 잔액 스냅샷 - mmap 읽기
+ * 파일 전체를 MappedByteBuffer 로 매핑하고 복사 없이 블록의 컬럼을 slice 해서 읽는다.
+ * 생성 시점에 footer 의 CRC32 를 검증한다.
+ *
+ * close() 는 채널만 닫는다. 매핑은 MappedByteBuffer 가 GC 될 때까지 남아 있다. (JDK 에 명시적 unmap 이 없다)
+ * 그동안 매핑된 크기만큼 가상 메모리를 차지하고, Windows 에서는 같은 경로를 덮어쓰는 export 가 실패할 수 있다.
+ * 큰 파일을 자주 여는 용도라면 매핑 대신 채널에서 블록 단위로 읽어야 한다.
+ */
+public class MemberBalanceFileReader implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int dataEnd;
+    private final long totalRows;
+    private final int blockCount;
+
+    public MemberBalanceFileReader(Path file) {
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("invalid snapshot file size=" + size);
+            }
+            this.buffer = channel.map(MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        this.dataEnd = buffer.capacity() - FOOTER_SIZE;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(buffer.capacity() - Integer.BYTES) != MAGIC) {
+            throw new IllegalStateException("not a member balance snapshot file");
+        }
+        if (buffer.get(Integer.BYTES) != VERSION) {
+            throw new IllegalStateException("unsupported version=" + buffer.get(Integer.BYTES));
+        }
+        this.totalRows = buffer.getLong(dataEnd);
+        this.blockCount = buffer.getInt(dataEnd + Long.BYTES);
+        long expectedCrc = buffer.getLong(dataEnd + Long.BYTES + Integer.BYTES);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, dataEnd));
+        if (crc.getValue() != expectedCrc) {
+            throw new IllegalStateException("checksum mismatch expected=" + expectedCrc + ", actual=" + crc.getValue());
+        }
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public void forEach(ObjIntConsumer<String> consumer) {
+        int position = HEADER_SIZE;
+        byte[] id = new byte[64];
+        while (position < dataEnd) {
+            int rows = buffer.getInt(position);
+            int idsLength = buffer.getInt(position + Integer.BYTES);
+            int moneyLength = buffer.getInt(position + Integer.BYTES * 2);
+            position += BLOCK_HEADER_SIZE;
+
+            ByteBuffer ids = buffer.slice(position, idsLength);
+            ByteBuffer money = buffer.slice(position + idsLength, moneyLength);
+            position += idsLength + moneyLength;
+
+            for (int i = 0; i < rows; i++) {
+                int shared = readVarInt(ids);
+                int suffix = readVarInt(ids);
+                int length = shared + suffix;
+                if (length > id.length) {
+                    id = Arrays.copyOf(id, Math.max(length, id.length * 2));
+                }
+                ids.get(id, shared, suffix);
+                consumer.accept(new String(id, 0, length, UTF_8), unZigZag(readVarInt(money)));
+            }
+        }
+    }
+
+    /**
+     * 매핑은 여기서 해제되지 않는다. reader 를 더 참조하지 않아야 GC 가 매핑을 정리한다.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
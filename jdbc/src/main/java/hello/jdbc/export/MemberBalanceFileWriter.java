@@ -0,0 +1,153 @@
+package hello.jdbc.export;
+
+import static hello.jdbc.export.MemberBalanceFormat.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * 회원 잔액 스냅샷 - 컬럼 기반 파일 쓰기
+ * 행을 블록 단위로 모아서 ID 컬럼, 잔액 컬럼 순서로 FileChannel 에 기록한다.
+ * 포맷은 MemberBalanceFormat 참고
+ * 다 쓰면 finish() 로 footer 를 기록한다. 중간에 실패해서 close() 만 호출되면 footer 없는 파일이 남는다.
+ */
+public class MemberBalanceFileWriter implements Closeable {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final FileChannel channel;
+    private final int blockRows;
+    private final CRC32 crc = new CRC32();
+    private final ByteArrayOutputStream ids = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream money = new ByteArrayOutputStream();
+
+    private byte[] previousId = EMPTY;
+    private int rowsInBlock;
+    private int blockCount;
+    private long totalRows;
+    private boolean closed;
+
+    public MemberBalanceFileWriter(Path file) {
+        this(file, DEFAULT_BLOCK_ROWS);
+    }
+
+    public MemberBalanceFileWriter(Path file, int blockRows) {
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("blockRows must be positive: " + blockRows);
+        }
+        this.blockRows = blockRows;
+        try {
+            this.channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION).flip();
+            write(header, true);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void append(String memberId, int balance) {
+        byte[] id = memberId.getBytes(UTF_8);
+        int shared = sharedPrefix(previousId, id);
+        writeVarInt(ids, shared);
+        writeVarInt(ids, id.length - shared);
+        ids.write(id, shared, id.length - shared);
+        writeVarInt(money, zigZag(balance));
+
+        previousId = id;
+        totalRows++;
+        if (++rowsInBlock == blockRows) {
+            flushBlock();
+        }
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * 남은 블록과 footer 를 기록하고 닫는다.
+     * finish() 없이 close() 하면 footer 가 없으므로 reader 가 잘린 파일로 거부한다.
+     */
+    public void finish() {
+        if (closed) {
+            throw new IllegalStateException("writer already closed");
+        }
+        try {
+            if (rowsInBlock > 0) {
+                flushBlock();
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE)
+                    .putLong(totalRows)
+                    .putInt(blockCount)
+                    .putLong(crc.getValue())
+                    .putInt(MAGIC)
+                    .flip();
+            write(footer, false);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void flushBlock() {
+        try {
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE)
+                    .putInt(rowsInBlock)
+                    .putInt(ids.size())
+                    .putInt(money.size())
+                    .flip();
+            write(blockHeader, true);
+            write(ByteBuffer.wrap(ids.toByteArray()), true);
+            write(ByteBuffer.wrap(money.toByteArray()), true);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        ids.reset();
+        money.reset();
+        previousId = EMPTY; //블록마다 prefix 압축을 새로 시작
+        rowsInBlock = 0;
+        blockCount++;
+    }
+
+    private void write(ByteBuffer buffer, boolean checksum) throws IOException {
+        if (checksum) {
+            crc.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int sharedPrefix(byte[] previous, byte[] current) {
+        int max = Math.min(previous.length, current.length);
+        int i = 0;
+        while (i < max && previous[i] == current[i]) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,56 @@
+package hello.jdbc.export;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 회원 잔액 스냅샷 파일 포맷
+ *
+ * [header] MAGIC(int) VERSION(byte)
+ * [block]  rowCount(int) idsLength(int) moneyLength(int) ids[] money[]
+ *          ids   : 이전 ID와 공유하는 prefix 길이(varint) + 나머지 길이(varint) + 나머지 바이트 (UTF-8)
+ *          money : zigzag varint
+ * [footer] totalRows(long) blockCount(int) crc32(long) MAGIC(int)
+ *
+ * 블록마다 prefix 압축을 새로 시작하므로 블록 단위로 독립적으로 읽을 수 있다.
+ */
+final class MemberBalanceFormat {
+
+    static final int MAGIC = 0x4D42414C; // "MBAL"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES;
+    static final int BLOCK_HEADER_SIZE = Integer.BYTES * 3;
+    static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    static final int DEFAULT_BLOCK_ROWS = 4096;
+
+    private MemberBalanceFormat() {
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return result;
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
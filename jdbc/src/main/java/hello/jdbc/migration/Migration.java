@@ -0,0 +1,19 @@
+package hello.jdbc.migration;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.springframework.core.io.Resource;
+
+/**
+ * db/migration/V{version}__{description}.sql 하나
+ */
+@Getter
+@ToString(exclude = "resource")
+@RequiredArgsConstructor
+public class Migration {
+    private final int version;
+    private final String description;
+    private final long checksum;
+    private final Resource resource;
+}
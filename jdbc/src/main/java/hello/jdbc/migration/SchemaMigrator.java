@@ -0,0 +1,145 @@
+package hello.jdbc.migration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+/**
+ * 버전 스키마 마이그레이션
+ * classpath:db/migration/V{n}__{설명}.sql 을 버전 순서로 한 번씩 적용하고 schema_version 에 기록한다.
+ * 이미 적용한 파일이 바뀌면(checksum 불일치) 적용하지 않고 실패한다.
+ *
+ * 주의! H2 는 DDL 실행 시 트랜잭션을 커밋하므로 마이그레이션 단위 원자성은 보장되지 않는다.
+ * 스크립트는 if not exists 등으로 다시 실행해도 안전하게 작성한다.
+ */
+@Slf4j
+public class SchemaMigrator {
+
+    public static final String DEFAULT_LOCATION = "classpath*:db/migration/V*__*.sql";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private final DataSource dataSource;
+    private final String location;
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this(dataSource, DEFAULT_LOCATION);
+    }
+
+    public SchemaMigrator(DataSource dataSource, String location) {
+        this.dataSource = dataSource;
+        this.location = location;
+        this.template = new JdbcTemplate(dataSource);
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * 적용하지 않은 마이그레이션을 모두 적용한다.
+     * @return 이번에 적용한 마이그레이션
+     */
+    public List<Migration> migrate() {
+        createVersionTable();
+        Map<Integer, Long> applied = appliedChecksums();
+        List<Migration> migrations = findMigrations();
+
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : migrations) {
+            Long checksum = applied.get(migration.getVersion());
+            if (checksum == null) {
+                pending.add(migration);
+            } else if (checksum != migration.getChecksum()) {
+                throw new IllegalStateException("migration changed after apply version=" + migration.getVersion()
+                        + " description=" + migration.getDescription());
+            }
+        }
+
+        for (Migration migration : pending) {
+            apply(migration);
+        }
+        return pending;
+    }
+
+    public int currentVersion() {
+        createVersionTable();
+        Integer version = template.queryForObject("select max(version) from schema_version", Integer.class);
+        return version == null ? 0 : version;
+    }
+
+    List<Migration> findMigrations() {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location);
+            Map<Integer, Migration> byVersion = new HashMap<>();
+            for (Resource resource : resources) {
+                Matcher matcher = FILE_NAME.matcher(resource.getFilename());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                int version = Integer.parseInt(matcher.group(1));
+                Migration migration = new Migration(version, matcher.group(2).replace('_', ' '), checksum(resource), resource);
+                Migration duplicate = byVersion.put(version, migration);
+                if (duplicate != null) {
+                    throw new IllegalStateException("duplicate migration version=" + version);
+                }
+            }
+            List<Migration> migrations = new ArrayList<>(byVersion.values());
+            migrations.sort(Comparator.comparingInt(Migration::getVersion));
+            return migrations;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void apply(Migration migration) {
+        log.info("apply migration {}", migration);
+        txTemplate.executeWithoutResult(status -> {
+            Connection con = DataSourceUtils.getConnection(dataSource);
+            new ResourceDatabasePopulator(migration.getResource()).populate(con);
+            template.update("insert into schema_version(version, description, checksum) values (?, ?, ?)",
+                    migration.getVersion(), migration.getDescription(), migration.getChecksum());
+        });
+    }
+
+    private void createVersionTable() {
+        template.update("create table if not exists schema_version ("
+                + "version integer primary key, "
+                + "description varchar(200) not null, "
+                + "checksum bigint not null, "
+                + "installed_on timestamp default current_timestamp not null)");
+    }
+
+    private Map<Integer, Long> appliedChecksums() {
+        Map<Integer, Long> applied = new HashMap<>();
+        template.query("select version, checksum from schema_version",
+                rs -> {
+                    applied.put(rs.getInt("version"), rs.getLong("checksum"));
+                });
+        return applied;
+    }
+
+    private static long checksum(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            CRC32 crc = new CRC32();
+            crc.update(StreamUtils.copyToByteArray(in));
+            return crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.connection.LatencyHistogram;
+import hello.jdbc.connection.StatementTrackingDataSource;
+import hello.jdbc.connection.StatementTrackingDataSource.Task;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyOverloadException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MemberRepository 를 전용 JDBC 스레드 풀에서 비동기로 실행한다.
+ * 스레드 수는 커넥션 풀 크기와 맞춘다. (더 많으면 커넥션 대기만 늘어난다)
+ * 큐가 가득 차면 MyOverloadException 으로 즉시 실패한다.
+ *
+ * 타임아웃/취소되면 실행 중인 Statement 를 cancel() 해서 DB 작업과 커넥션도 바로 돌려받는다.
+ * target 은 statements 로 감싼 DataSource 를 사용해야 한다.
+ * 예외는 target 이 변환한 예외 그대로 future 에 전달된다.
+ *
+ * 주의! 작업은 다른 스레드에서 실행되므로 호출한 쪽의 트랜잭션에 참여하지 않는다.
+ */
+@Slf4j
+public class AsyncMemberRepository implements AutoCloseable {
+
+    private final MemberRepository target;
+    private final StatementTrackingDataSource statements;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong cancels = new AtomicLong();
+    @Getter
+    private final LatencyHistogram queueWaitHistogram = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram executionHistogram = new LatencyHistogram();
+
+    public AsyncMemberRepository(MemberRepository target, StatementTrackingDataSource statements,
+                                 int threads, int queueCapacity) {
+        this.target = target;
+        this.statements = statements;
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "jdbc-async-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Member> findByIdAsync(String memberId, Duration timeout) {
+        return submit(() -> target.findById(memberId), timeout);
+    }
+
+    public CompletableFuture<Void> updateAsync(String memberId, int money, Duration timeout) {
+        return submit(() -> {
+            target.update(memberId, money);
+            return null;
+        }, timeout);
+    }
+
+    /**
+     * 여러 회원을 동시에 조회한다. (fan-out / fan-in)
+     * 하나라도 실패하거나 타임아웃이면 나머지를 취소하고 그 예외로 실패한다.
+     * @return memberIds 순서대로의 회원 목록
+     */
+    public CompletableFuture<List<Member>> findAllAsync(Collection<String> memberIds, Duration timeout) {
+        List<CompletableFuture<Member>> futures = new ArrayList<>(memberIds.size());
+        for (String memberId : memberIds) {
+            futures.add(findByIdAsync(memberId, timeout));
+        }
+
+        CompletableFuture<List<Member>> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(futures.size());
+        if (futures.isEmpty()) {
+            result.complete(List.of());
+        }
+        for (CompletableFuture<Member> future : futures) {
+            future.whenComplete((member, e) -> {
+                if (e != null) {
+                    if (result.completeExceptionally(e)) {
+                        futures.forEach(f -> f.cancel(true));
+                    }
+                } else if (remaining.decrementAndGet() == 0) {
+                    List<Member> members = new ArrayList<>(futures.size());
+                    futures.forEach(f -> members.add(f.join()));
+                    result.complete(members);
+                }
+            });
+        }
+        //호출한 쪽에서 결과를 취소하면 개별 조회도 취소
+        result.whenComplete((members, e) -> {
+            if (e instanceof CancellationException) {
+                futures.forEach(f -> f.cancel(true));
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call, Duration timeout) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicReference<Task> running = new AtomicReference<>();
+        long enqueuedAt = System.nanoTime();
+
+        queueDepth.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                queueDepth.decrementAndGet();
+                long start = System.nanoTime();
+                queueWaitHistogram.record(start - enqueuedAt);
+                //이 작업의 Statement 만 취소 대상 - 끝난 뒤의 타임아웃은 다음 작업에 영향이 없다
+                Task task = statements.begin();
+                running.set(task);
+                try {
+                    //큐에서 기다리는 동안 타임아웃/취소된 작업은 실행하지 않는다
+                    if (future.isDone()) {
+                        return;
+                    }
+                    future.complete(call.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    statements.end(task);
+                    executionHistogram.record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queueDepth.decrementAndGet();
+            future.completeExceptionally(new MyOverloadException("jdbc executor queue full", e));
+            return future;
+        }
+
+        future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((result, e) -> {
+            if (e instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+            } else if (e instanceof CancellationException) {
+                cancels.incrementAndGet();
+            } else {
+                return;
+            }
+            Task task = running.get();
+            if (task != null) {
+                statements.cancel(task);
+            }
+        });
+        return future;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getCancels() {
+        return cancels.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,55 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+
+/**
+ * 트랜잭션 범위 1차 캐시 적용
+ * 같은 트랜잭션 안에서 한 번 조회한 회원은 DB 를 다시 조회하지 않는다.
+ * MemberRepository 구현체를 감싸서 사용한다.
+ */
+public class CachedMemberRepository implements MemberRepository {
+
+    private final MemberRepository target;
+    private final MemberTxCacheTemplate cacheTemplate = new MemberTxCacheTemplate();
+
+    public CachedMemberRepository(MemberRepository target) {
+        this.target = target;
+    }
+
+    @Override
+    public Member save(Member member) {
+        return cacheTemplate.store(() -> target.save(member));
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        return cacheTemplate.findById(memberId, () -> target.findById(memberId));
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        cacheTemplate.update(memberId, money, () -> target.update(memberId, money));
+    }
+
+    @Override
+    public void delete(String memberId) {
+        cacheTemplate.delete(memberId, () -> target.delete(memberId));
+    }
+
+    @Override
+    public Member updateReturning(String memberId, int money) {
+        return cacheTemplate.store(() -> target.updateReturning(memberId, money));
+    }
+
+    /**
+     * target 의 한 문장 갱신을 그대로 사용한다. (기본 구현은 조회 후 update)
+     */
+    @Override
+    public Member addMoneyReturning(String memberId, int delta) {
+        return cacheTemplate.store(() -> target.addMoneyReturning(memberId, delta));
+    }
+
+    public MemberTxCache.Stats getStats() {
+        return cacheTemplate.getStats();
+    }
+}
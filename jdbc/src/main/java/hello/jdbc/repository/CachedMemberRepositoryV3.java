@@ -0,0 +1,42 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * 트랜잭션 범위 1차 캐시 적용 - MemberRepositoryV3 용
+ * MemberServiceV3_x 는 MemberRepositoryV3 에 직접 의존하므로 상속으로 적용한다.
+ */
+public class CachedMemberRepositoryV3 extends MemberRepositoryV3 {
+
+    private final MemberTxCacheTemplate cacheTemplate = new MemberTxCacheTemplate();
+
+    public CachedMemberRepositoryV3(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public Member save(Member member) throws SQLException {
+        return cacheTemplate.store(() -> super.save(member));
+    }
+
+    @Override
+    public Member findById(String memberId) throws SQLException {
+        return cacheTemplate.findById(memberId, () -> super.findById(memberId));
+    }
+
+    @Override
+    public void update(String memberId, int money) throws SQLException {
+        cacheTemplate.update(memberId, money, () -> super.update(memberId, money));
+    }
+
+    @Override
+    public void delete(String memberId) throws SQLException {
+        cacheTemplate.delete(memberId, () -> super.delete(memberId));
+    }
+
+    public MemberTxCache.Stats getStats() {
+        return cacheTemplate.getStats();
+    }
+}
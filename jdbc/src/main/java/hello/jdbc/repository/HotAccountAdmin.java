@@ -0,0 +1,73 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * hot 계좌 지정/해제 관리 도구
+ * 조회(기본 로우 + 슬롯 합계)는 어느 단계에서도 같은 값이 나오도록 한 트랜잭션에서 처리한다.
+ * - promote: (트랜잭션) 잔액을 슬롯 0 으로 이동, 나머지 슬롯 0원 생성, balance_slots = K
+ * - demote : (트랜잭션) 슬롯을 잠그고 합계를 기본 로우로 합친 뒤 슬롯 삭제, balance_slots = 0
+ */
+@Slf4j
+public class HotAccountAdmin {
+
+    private final SplitBalanceMemberRepository repository;
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+
+    public HotAccountAdmin(SplitBalanceMemberRepository repository, DataSource dataSource) {
+        this.repository = repository;
+        this.template = new JdbcTemplate(dataSource);
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    public void promote(String memberId, int slots) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("slots must be positive: " + slots);
+        }
+        txTemplate.executeWithoutResult(status -> {
+            Map<String, Object> member = lockMember(memberId);
+            if (((Number) member.get("BALANCE_SLOTS")).intValue() > 0) {
+                throw new IllegalStateException("already hot memberId=" + memberId);
+            }
+            int money = ((Number) member.get("MONEY")).intValue();
+            for (int slot = 0; slot < slots; slot++) {
+                template.update("insert into member_balance_slot(member_id, slot, money) values (?, ?, ?)",
+                        memberId, slot, slot == 0 ? money : 0);
+            }
+            template.update("update member set money = 0, balance_slots = ? where member_id=?", slots, memberId);
+        });
+        repository.remember(memberId, slots);
+        log.info("promoted hot account memberId={}, slots={}", memberId, slots);
+    }
+
+    public void demote(String memberId) {
+        txTemplate.executeWithoutResult(status -> {
+            lockMember(memberId);
+            //입금은 슬롯 로우만 갱신하므로 슬롯도 잠그고 잠근 값으로 합친다 (합계 후 삭제 사이에 들어온 입금 유실 방지)
+            List<Integer> slotMoney = template.queryForList(
+                    "select money from member_balance_slot where member_id=? order by slot for update", Integer.class, memberId);
+            int sum = slotMoney.stream().mapToInt(Integer::intValue).sum();
+            template.update("update member set money = money + ?, balance_slots = 0 where member_id=?", sum, memberId);
+            template.update("delete from member_balance_slot where member_id=?", memberId);
+        });
+        repository.remember(memberId, 0);
+        log.info("demoted hot account memberId={}", memberId);
+    }
+
+    private Map<String, Object> lockMember(String memberId) {
+        List<Map<String, Object>> member = template.queryForList(
+                "select money, balance_slots from member where member_id=? for update", memberId);
+        if (member.isEmpty()) {
+            throw new MemberNotFoundException(memberId);
+        }
+        return member.get(0);
+    }
+}
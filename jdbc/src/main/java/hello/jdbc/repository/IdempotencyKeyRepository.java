@@ -0,0 +1,43 @@
+package hello.jdbc.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 이체 멱등성 키 저장소 (sql/transfer_idempotency.sql)
+ * 같은 키를 두 번 insert 하면 DuplicateKeyException
+ */
+public class IdempotencyKeyRepository {
+
+    private final JdbcTemplate template;
+
+    public IdempotencyKeyRepository(DataSource dataSource) {
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    public void insert(String key) {
+        String sql = "insert into transfer_idempotency(idempotency_key) values (?)";
+        template.update(sql, key);
+    }
+
+    public boolean exists(String key) {
+        String sql = "select count(*) from transfer_idempotency where idempotency_key = ?";
+        Integer count = template.queryForObject(sql, Integer.class, key);
+        return count != null && count > 0;
+    }
+
+    public int deleteOlderThan(Instant threshold) {
+        String sql = "delete from transfer_idempotency where created_at < ?";
+        return template.update(sql, Timestamp.from(threshold));
+    }
+
+    public void forEachKey(Consumer<String> consumer) {
+        String sql = "select idempotency_key from transfer_idempotency";
+        template.query(sql, rs -> {
+            consumer.accept(rs.getString(1));
+        });
+    }
+}
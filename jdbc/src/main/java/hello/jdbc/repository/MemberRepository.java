@@ -8,4 +8,24 @@ public interface MemberRepository {
 	Member findById(String memberId);
 	void update(String memberId, int money);
 	void delete(String memberId);
+
+	/**
+	 * 변경 후 회원을 반환한다. 기본 구현은 update + findById (2번 호출)
+	 */
+	default Member updateReturning(String memberId, int money) {
+		update(memberId, money);
+		return findById(memberId);
+	}
+
+	/**
+	 * 잔액에 delta 를 더하고 변경 후 회원을 반환한다. 기본 구현은 findById + update (2번 호출)
+	 * 주의! 기본 구현은 원자적이지 않다. 동시에 호출하면 갱신이 사라질 수 있으므로
+	 * DB 에 직접 쓰는 구현은 money = money + ? 한 문장으로 재정의한다. (V4_1, V4_2, V5)
+	 */
+	default Member addMoneyReturning(String memberId, int delta) {
+		Member member = findById(memberId);
+		int money = member.getMoney() + delta;
+		update(memberId, money);
+		return new Member(memberId, money);
+	}
 }
@@ -1,10 +1,10 @@
 package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MemberNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.NoSuchElementException;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
 
@@ -57,12 +57,9 @@ public class MemberRepositoryV3 {
 
             rs = pstmt.executeQuery(); // Select 기능 수행하고 ResultSet을 반환해준다. ResultSet에는 Select 쿼리문에 대한 결과를 담고있다.
             if (rs.next()) { // next() 를 사용해야 실제 데이터가 있는 것을 호출해준다.
-                Member member = new Member();
-                member.setMemberId(rs.getString("member_id"));
-                member.setMoney(rs.getInt("money"));
-                return member;
+                return new Member(rs.getString("member_id"), rs.getInt("money"));
             } else {
-                throw new NoSuchElementException("member not found memberId= " + memberId);
+                throw new MemberNotFoundException(memberId);
             }
 
         } catch (SQLException e) {
@@ -86,8 +83,9 @@ public class MemberRepositoryV3 {
             pstmt.setInt(1, money);
             pstmt.setString(2, memberId);
             int resultSize = pstmt.executeUpdate();
-            log.info("resultSize={}", resultSize);
-            pstmt.executeUpdate();
+            if (log.isDebugEnabled()) {
+                log.debug("resultSize={}", resultSize);
+            }
         } catch (SQLException e) {
             log.error("db error", e);
             throw e;
@@ -107,7 +105,9 @@ public class MemberRepositoryV3 {
             pstmt = con.prepareStatement(sql);
             pstmt.setString(1, memberId);
             int resultSize = pstmt.executeUpdate();
-            log.info("resultSize={}", resultSize); //0이 나와야만 한다.
+            if (log.isDebugEnabled()) {
+                log.debug("resultSize={}", resultSize); //0이 나와야만 한다.
+            }
         } catch (SQLException e) {
             log.error("db error", e);
             throw e;
@@ -127,7 +127,9 @@ public class MemberRepositoryV3 {
     private Connection getConnection() throws SQLException {
         //주의! 트랜잭션 동기
         Connection con = DataSourceUtils.getConnection(dataSource); //Repository에서 쓰레드 로컬에 보관된 커넥션을 꺼내는 것.
-        log.info("get connection={}, class={}", con, con.getClass());
+        if (log.isDebugEnabled()) {
+            log.debug("get connection={}, class={}", con, con.getClass());
+        }
         return con;
     }
 }
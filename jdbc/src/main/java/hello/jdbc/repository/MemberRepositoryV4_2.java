@@ -1,13 +1,14 @@
  package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
+import hello.jdbc.repository.QueryTimeoutPolicy.Operation;
+import hello.jdbc.repository.ex.MemberNotFoundException;
 import hello.jdbc.repository.ex.MyDbException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.NoSuchElementException;
 import javax.sql.DataSource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.datasource.DataSourceUtils;
@@ -23,10 +24,19 @@ import org.springframework.jdbc.support.SQLExceptionTranslator;
 public class MemberRepositoryV4_2 implements MemberRepository{
     private final DataSource dataSource;
     private final SQLExceptionTranslator exTranslator;
+    private final QueryTimeoutPolicy timeoutPolicy;
 
     public MemberRepositoryV4_2(DataSource dataSource) {
+        this(dataSource, QueryTimeoutPolicy.defaults());
+    }
+
+    /**
+     * 타임아웃은 exTranslator 가 스프링 QueryTimeoutException 으로 변환한다.
+     */
+    public MemberRepositoryV4_2(DataSource dataSource, QueryTimeoutPolicy timeoutPolicy) {
         this.dataSource = dataSource;
         this.exTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+        this.timeoutPolicy = timeoutPolicy;
     }
 
     @Override
@@ -38,6 +48,7 @@ public class MemberRepositoryV4_2 implements MemberRepository{
         try {
             con = getConnection(); // --> Connection 객체가 주입됨
             pstmt = con.prepareStatement(sql); // prepareStatement 는 어떤 값이 오든 "" 로 바인딩해서 오기 때문에 SQL Injection 공격을 예방할 수 있다.
+            timeoutPolicy.apply(pstmt, dataSource, Operation.SAVE);
             pstmt.setString(1, member.getMemberId());
             pstmt.setInt(2, member.getMoney());
             pstmt.executeUpdate();
@@ -59,15 +70,13 @@ public class MemberRepositoryV4_2 implements MemberRepository{
         try {
             con = getConnection();
             pstmt = con.prepareStatement(sql);
+            timeoutPolicy.apply(pstmt, dataSource, Operation.FIND_BY_ID);
             pstmt.setString(1, memberId); // 위에 지정해둔 쿼리 문(String sql) 에 첫번째 ? 표에 memberId 를 넣는다는 말
             rs = pstmt.executeQuery(); // Select 기능 수행하고 ResultSet을 반환해준다. ResultSet에는 Select 쿼리문에 대한 결과를 담고있다.
             if (rs.next()) { // next() 를 사용해야 실제 데이터가 있는 것을 호출해준다.
-                Member member = new Member();
-                member.setMemberId(rs.getString("member_id"));
-                member.setMoney(rs.getInt("money"));
-                return member;
+                return new Member(rs.getString("member_id"), rs.getInt("money"));
             } else {
-                throw new NoSuchElementException("member not found memberId= " + memberId);
+                throw new MemberNotFoundException(memberId);
             }
         } catch (SQLException e) {
             throw exTranslator.translate("findById", sql, e);
@@ -85,11 +94,13 @@ public class MemberRepositoryV4_2 implements MemberRepository{
         try {
             con = getConnection();
             pstmt = con.prepareStatement(sql);
+            timeoutPolicy.apply(pstmt, dataSource, Operation.UPDATE);
             pstmt.setInt(1, money);
             pstmt.setString(2, memberId);
             int resultSize = pstmt.executeUpdate();
-            log.info("resultSize={}", resultSize);
-            pstmt.executeUpdate();
+            if (log.isDebugEnabled()) {
+                log.debug("resultSize={}", resultSize);
+            }
         } catch (SQLException e) {
             throw exTranslator.translate("update", sql, e);
         } finally {
@@ -97,6 +108,48 @@ public class MemberRepositoryV4_2 implements MemberRepository{
         }
     }
 
+    /**
+     * H2 data change delta table - UPDATE 와 결과 조회를 한 문장으로
+     */
+    @Override
+    public Member updateReturning(String memberId, int money) {
+        String sql = "select member_id, money from final table (update member set money=? where member_id=?)";
+        return executeReturning("updateReturning", sql, money, memberId);
+    }
+
+    /**
+     * money = money + ? 한 문장 - 조회 후 update 와 달리 동시 변경이 사라지지 않는다.
+     */
+    @Override
+    public Member addMoneyReturning(String memberId, int delta) {
+        String sql = "select member_id, money from final table (update member set money = money + ? where member_id=?)";
+        return executeReturning("addMoneyReturning", sql, delta, memberId);
+    }
+
+    private Member executeReturning(String task, String sql, int money, String memberId) {
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            timeoutPolicy.apply(pstmt, dataSource, Operation.UPDATE);
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return new Member(rs.getString("member_id"), rs.getInt("money"));
+            } else {
+                throw new MemberNotFoundException(memberId);
+            }
+        } catch (SQLException e) {
+            throw exTranslator.translate(task, sql, e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
     @Override
     public void delete(String memberId) {
         String sql = "delete from member where member_id=?";
@@ -107,9 +160,12 @@ public class MemberRepositoryV4_2 implements MemberRepository{
         try {
             con = getConnection();
             pstmt = con.prepareStatement(sql);
+            timeoutPolicy.apply(pstmt, dataSource, Operation.DELETE);
             pstmt.setString(1, memberId);
             int resultSize = pstmt.executeUpdate();
-            log.info("resultSize={}", resultSize); //0이 나와야만 한다.
+            if (log.isDebugEnabled()) {
+                log.debug("resultSize={}", resultSize); //0이 나와야만 한다.
+            }
         } catch (SQLException e) {
             throw exTranslator.translate("delete", sql, e);
         } finally {
@@ -128,7 +184,9 @@ public class MemberRepositoryV4_2 implements MemberRepository{
     private Connection getConnection() throws SQLException {
         //주의! 트랜잭션 동기
         Connection con = DataSourceUtils.getConnection(dataSource); //Repository에서 쓰레드 로컬에 보관된 커넥션을 꺼내는 것.
-        log.info("get connection={}, class={}", con, con.getClass());
+        if (log.isDebugEnabled()) {
+            log.debug("get connection={}, class={}", con, con.getClass());
+        }
         return con;
     }
 }
@@ -1,9 +1,24 @@
  package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
+import hello.jdbc.repository.QueryTimeoutPolicy.Operation;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 import javax.sql.DataSource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 
  /**
@@ -13,44 +28,140 @@ import org.springframework.jdbc.core.RowMapper;
 @Slf4j
 public class MemberRepositoryV5 implements MemberRepository{
 
-     private final JdbcTemplate template;
+     private static final RowMapper<Member> MEMBER_ROW_MAPPER =
+             (rs, rowNum) -> new Member(rs.getString("member_id"), rs.getInt("money"));
+
+     /**
+      * queryForObject 와 같은 규칙(0건/2건 이상이면 예외)으로 한 건만 매핑 - 중간 List 를 만들지 않는다.
+      */
+     private static final ResultSetExtractor<Member> SINGLE_MEMBER = rs -> {
+         if (!rs.next()) {
+             throw new EmptyResultDataAccessException(1);
+         }
+         Member member = MEMBER_ROW_MAPPER.mapRow(rs, 0);
+         int size = 1;
+         while (rs.next()) {
+             size++;
+         }
+         if (size > 1) {
+             throw new IncorrectResultSizeDataAccessException(1, size);
+         }
+         return member;
+     };
+
+     private final Map<Operation, JdbcTemplate> templates = new EnumMap<>(Operation.class);
 
     public MemberRepositoryV5(DataSource dataSource) {
-        this.template = new JdbcTemplate(dataSource);
+        this(dataSource, QueryTimeoutPolicy.defaults());
+    }
+
+    /**
+     * 메서드별로 타임아웃을 적용한 JdbcTemplate 을 하나씩 둔다.
+     */
+    public MemberRepositoryV5(DataSource dataSource, QueryTimeoutPolicy timeoutPolicy) {
+        for (Operation operation : Operation.values()) {
+            templates.put(operation, timeoutPolicy.template(dataSource, operation));
+        }
     }
 
     @Override
     public Member save(Member member) {
         String sql = "insert into member(member_id, money) values (?, ?)";
-        template.update(sql, member.getMemberId(), member.getMoney());
+        template(Operation.SAVE).update(sql, ps -> {
+            ps.setString(1, member.getMemberId());
+            ps.setInt(2, member.getMoney());
+        });
         return member;
     }
 
     @Override
     public Member findById(String memberId) {
         String sql = "select * from member where member_id = ?";
-        Member member = template.queryForObject(sql, memberRawMapper(), memberId);
-        return member;
+        return template(Operation.FIND_BY_ID).query(sql, bindId(memberId), SINGLE_MEMBER);
     }
 
      @Override
     public void update(String memberId, int money) {
         String sql = "update member set money= ? where member_id=?";
-        template.update(sql, money, memberId);
+        template(Operation.UPDATE).update(sql, bindMoneyAndId(money, memberId));
+    }
+
+    /**
+     * H2 data change delta table - UPDATE 와 결과 조회를 한 문장으로
+     */
+    @Override
+    public Member updateReturning(String memberId, int money) {
+        String sql = "select member_id, money from final table (update member set money=? where member_id=?)";
+        return template(Operation.UPDATE).query(sql, bindMoneyAndId(money, memberId), SINGLE_MEMBER);
+    }
+
+    @Override
+    public Member addMoneyReturning(String memberId, int delta) {
+        String sql = "select member_id, money from final table (update member set money = money + ? where member_id=?)";
+        return template(Operation.UPDATE).query(sql, bindMoneyAndId(delta, memberId), SINGLE_MEMBER);
     }
 
     @Override
     public void delete(String memberId) {
         String sql = "delete from member where member_id=?";
-        template.update(sql, memberId);
+        template(Operation.DELETE).update(sql, bindId(memberId));
+    }
+
+    /**
+     * 증감분(delta)을 하나의 배치로 반영한다. member_id 순서로 실행해서 락 획득 순서를 맞춘다.
+     * @return 회원별 반영된 행 수 (deltas 순서)
+     */
+    public int[] addMoneyBatch(SortedMap<String, Integer> deltas) {
+        String sql = "update member set money = money + ? where member_id=?";
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(deltas.entrySet());
+        return template(Operation.UPDATE).batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, entries.get(i).getValue());
+                ps.setString(2, entries.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    /**
+     * 이체 전체를 저장 함수(member_transfer) 호출 한 번으로 실행한다.
+     * sql/transfer_procedure.sql 로 alias 를 먼저 등록해야 한다.
+     */
+    public TransferStatus transferByCall(String fromId, String toId, int money) {
+        String sql = "call member_transfer(?, ?, ?)";
+        Integer code = template(Operation.UPDATE).execute(sql, (CallableStatementCallback<Integer>) cs -> {
+            cs.setString(1, fromId);
+            cs.setString(2, toId);
+            cs.setInt(3, money);
+            try (ResultSet rs = cs.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        });
+        return TransferStatus.of(code);
+    }
+
+    private JdbcTemplate template(Operation operation) {
+        return templates.get(operation);
     }
 
-     private RowMapper<Member> memberRawMapper() {
-         return (rs, rowNum) -> {
-             Member member = new Member();
-             member.setMemberId(rs.getString("member_id"));
-             member.setMoney(rs.getInt("money"));
-             return member;
+     /**
+      * int 를 박싱하지 않도록 JdbcTemplate 의 Object... 대신 직접 바인딩한다. (varargs 배열도 없다)
+      * 할당이 없는 것은 아니다. 값을 캡처하는 람다 하나는 호출마다 만들어진다.
+      */
+     private static PreparedStatementSetter bindId(String memberId) {
+         return ps -> ps.setString(1, memberId);
+     }
+
+     private static PreparedStatementSetter bindMoneyAndId(int money, String memberId) {
+         return ps -> {
+             ps.setInt(1, money);
+             ps.setString(2, memberId);
          };
      }
  }
@@ -0,0 +1,64 @@
+package hello.jdbc.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * H2 Java 저장 함수 - 출금/검증/입금을 DB 안에서 한 번에 실행한다.
+ * sql/transfer_procedure.sql 의 CREATE ALIAS 로 등록한다.
+ * TCP 서버 모드에서는 이 클래스가 H2 서버 클래스패스에 있어야 한다.
+ *
+ * 실패하면 아무것도 변경하지 않고 상태 코드만 반환한다.
+ */
+public final class MemberTransferProcedure {
+
+    private MemberTransferProcedure() {
+    }
+
+    /**
+     * 첫 번째 파라미터 Connection 은 H2 가 호출한 세션의 커넥션을 넘겨준다.
+     */
+    public static int transfer(Connection conn, String fromId, String toId, int money) throws SQLException {
+        //데드락 방지 - member_id 순서로 락 획득
+        boolean fromFirst = fromId.compareTo(toId) <= 0;
+        Integer first = lockMoney(conn, fromFirst ? fromId : toId);
+        Integer second = lockMoney(conn, fromFirst ? toId : fromId);
+        Integer fromMoney = fromFirst ? first : second;
+        Integer toMoney = fromFirst ? second : first;
+
+        if (fromMoney == null || toMoney == null) {
+            return TransferStatus.MEMBER_NOT_FOUND.getCode();
+        }
+        if (toId.equals("ex")) {
+            return TransferStatus.VALIDATION_FAILED.getCode();
+        }
+        if (fromMoney < money) {
+            return TransferStatus.INSUFFICIENT_FUNDS.getCode();
+        }
+
+        addMoney(conn, fromId, -money);
+        addMoney(conn, toId, money);
+        return TransferStatus.OK.getCode();
+    }
+
+    private static Integer lockMoney(Connection conn, String memberId) throws SQLException {
+        String sql = "select money from member where member_id = ? for update";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, memberId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private static void addMoney(Connection conn, String memberId, int delta) throws SQLException {
+        String sql = "update member set money = money + ? where member_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, delta);
+            pstmt.setString(2, memberId);
+            pstmt.executeUpdate();
+        }
+    }
+}
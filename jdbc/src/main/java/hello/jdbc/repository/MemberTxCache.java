@@ -0,0 +1,128 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.MemberValue;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 트랜잭션 범위 1차 캐시 (identity map)
+ * DataSourceUtils 가 커넥션을 바인딩하는 것과 같은 방식으로
+ * TransactionSynchronizationManager 에 리소스로 바인딩하고, 커밋/롤백 시 해제한다.
+ * 캐시에는 불변 MemberValue 로 보관하고, 꺼낼 때마다 새 Member 로 변환한다. (Member 는 가변 객체)
+ */
+@Slf4j
+public class MemberTxCache {
+
+    private final Map<String, MemberValue> members = new HashMap<>();
+    private int hits;
+    private int misses;
+
+    /**
+     * 현재 트랜잭션에 바인딩된 캐시를 반환한다. 없으면 새로 바인딩한다.
+     * 트랜잭션 동기화가 활성화되어 있지 않으면 null
+     */
+    static MemberTxCache current(Object key, Stats stats) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        MemberTxCache cache = (MemberTxCache) TransactionSynchronizationManager.getResource(key);
+        if (cache == null) {
+            cache = new MemberTxCache();
+            TransactionSynchronizationManager.bindResource(key, cache);
+            TransactionSynchronizationManager.registerSynchronization(new CacheSynchronization(key, cache, stats));
+        }
+        return cache;
+    }
+
+    Member get(String memberId) {
+        MemberValue member = members.get(memberId);
+        if (member == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return member.toMember();
+    }
+
+    void put(Member member) {
+        members.put(member.getMemberId(), MemberValue.from(member));
+    }
+
+    void updateIfPresent(String memberId, int money) {
+        members.computeIfPresent(memberId, (id, member) -> member.withMoney(money));
+    }
+
+    void remove(String memberId) {
+        members.remove(memberId);
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * 캐시 통계 - 트랜잭션 종료 시점에 누적된다.
+     * hits 가 곧 절약한 DB 왕복 횟수
+     */
+    public static class Stats {
+        private final AtomicLong transactions = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        public long getTransactions() {
+            return transactions.get();
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        void record(MemberTxCache cache) {
+            transactions.incrementAndGet();
+            hits.addAndGet(cache.hits);
+            misses.addAndGet(cache.misses);
+        }
+    }
+
+    private static class CacheSynchronization implements TransactionSynchronization {
+        private final Object key;
+        private final MemberTxCache cache;
+        private final Stats stats;
+
+        CacheSynchronization(Object key, MemberTxCache cache, Stats stats) {
+            this.key = key;
+            this.cache = cache;
+            this.stats = stats;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(key);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(key, cache);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(key);
+            stats.record(cache);
+            log.debug("member tx cache saved round trips={}, loads={}", cache.hits, cache.misses);
+        }
+    }
+}
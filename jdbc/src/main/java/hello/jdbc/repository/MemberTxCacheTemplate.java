@@ -0,0 +1,69 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+
+/**
+ * CachedMemberRepository / CachedMemberRepositoryV3 공통 로직
+ * 실제 조회/변경은 넘겨받은 호출로 실행하고, 현재 트랜잭션의 MemberTxCache 와 결과를 맞춘다.
+ * 캐시는 이 템플릿 인스턴스를 키로 바인딩하므로 리포지토리마다 따로 관리된다.
+ */
+class MemberTxCacheTemplate {
+
+    private final MemberTxCache.Stats stats = new MemberTxCache.Stats();
+
+    /**
+     * call 이 반환한 회원을 캐시에 넣는다. (save, updateReturning 등)
+     */
+    <E extends Exception> Member store(MemberCall<Member, E> call) throws E {
+        Member member = call.call();
+        MemberTxCache cache = MemberTxCache.current(this, stats);
+        if (cache != null) {
+            cache.put(member);
+        }
+        return member;
+    }
+
+    <E extends Exception> Member findById(String memberId, MemberCall<Member, E> load) throws E {
+        MemberTxCache cache = MemberTxCache.current(this, stats);
+        if (cache == null) {
+            return load.call();
+        }
+        Member cached = cache.get(memberId);
+        if (cached != null) {
+            return cached;
+        }
+        Member member = load.call();
+        cache.put(member);
+        return member;
+    }
+
+    <E extends Exception> void update(String memberId, int money, MemberAction<E> update) throws E {
+        update.run();
+        MemberTxCache cache = MemberTxCache.current(this, stats);
+        if (cache != null) {
+            cache.updateIfPresent(memberId, money);
+        }
+    }
+
+    <E extends Exception> void delete(String memberId, MemberAction<E> delete) throws E {
+        delete.run();
+        MemberTxCache cache = MemberTxCache.current(this, stats);
+        if (cache != null) {
+            cache.remove(memberId);
+        }
+    }
+
+    MemberTxCache.Stats getStats() {
+        return stats;
+    }
+
+    @FunctionalInterface
+    interface MemberCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    interface MemberAction<E extends Exception> {
+        void run() throws E;
+    }
+}
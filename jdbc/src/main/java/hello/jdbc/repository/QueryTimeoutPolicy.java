@@ -0,0 +1,123 @@
+package hello.jdbc.repository;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 리포지토리 메서드별 쿼리 타임아웃
+ * 트랜잭션에 timeout 이 있으면(@Transactional(timeout = ..)) 남은 시간과 비교해서 작은 값을 쓴다.
+ * 남은 시간이 없으면 TransactionTimedOutException 이 발생한다.
+ *
+ * JDBC setQueryTimeout 은 초 단위라서 1초 미만 예산(findById 50ms)은 지킬 수 없다.
+ * 그래서 setQueryTimeout(올림)은 드라이버 쪽 안전망으로만 두고, 정확한 시각에 Statement.cancel() 을 예약한다.
+ * 취소된 statement 는 SQLTimeoutException(H2 57014) 으로 끝난다.
+ */
+@Slf4j
+public class QueryTimeoutPolicy {
+
+    private static final ScheduledThreadPoolExecutor canceller = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "query-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        canceller.setRemoveOnCancelPolicy(true);
+    }
+
+    public enum Operation {
+        FIND_BY_ID, SAVE, UPDATE, DELETE, SCAN
+    }
+
+    private final Map<Operation, Duration> timeouts;
+
+    private QueryTimeoutPolicy(Map<Operation, Duration> timeouts) {
+        this.timeouts = timeouts;
+    }
+
+    /**
+     * findById 50ms, 쓰기 5초, 전체 조회 30초
+     */
+    public static QueryTimeoutPolicy defaults() {
+        Map<Operation, Duration> timeouts = new EnumMap<>(Operation.class);
+        timeouts.put(Operation.FIND_BY_ID, Duration.ofMillis(50));
+        timeouts.put(Operation.SAVE, Duration.ofSeconds(5));
+        timeouts.put(Operation.UPDATE, Duration.ofSeconds(5));
+        timeouts.put(Operation.DELETE, Duration.ofSeconds(5));
+        timeouts.put(Operation.SCAN, Duration.ofSeconds(30));
+        return new QueryTimeoutPolicy(timeouts);
+    }
+
+    public QueryTimeoutPolicy with(Operation operation, Duration timeout) {
+        Map<Operation, Duration> copy = new EnumMap<>(timeouts);
+        copy.put(operation, timeout);
+        return new QueryTimeoutPolicy(copy);
+    }
+
+    public Duration timeout(Operation operation) {
+        return timeouts.get(operation);
+    }
+
+    /**
+     * 이번 statement 에 줄 시간 - operation 타임아웃과 트랜잭션 남은 시간 중 작은 값
+     */
+    public Duration effectiveTimeout(Operation operation, DataSource dataSource) {
+        Duration timeout = timeouts.get(operation);
+        ConnectionHolder holder = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+        if (holder != null && holder.hasTimeout()) {
+            Duration timeToLive = Duration.ofMillis(holder.getTimeToLiveInMillis());
+            if (timeToLive.compareTo(timeout) < 0) {
+                timeout = timeToLive;
+            }
+        }
+        return timeout;
+    }
+
+    /**
+     * setQueryTimeout(올림) 을 걸고, 초 단위로 떨어지지 않으면 정확한 시각에 cancel 을 예약한다.
+     * 예약은 statement 가 이미 닫혔으면 아무것도 하지 않는다.
+     */
+    public void apply(Statement statement, DataSource dataSource, Operation operation) throws SQLException {
+        long millis = effectiveTimeout(operation, dataSource).toMillis();
+        statement.setQueryTimeout((int) Math.max(1, (millis + 999) / 1000));
+        if (millis % 1000 != 0) {
+            canceller.schedule(() -> cancel(statement), millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            if (!statement.isClosed()) {
+                statement.cancel();
+                log.debug("statement canceled at deadline");
+            }
+        } catch (SQLException e) {
+            //cancel 직전에 닫힌 경우
+            log.debug("statement cancel skipped", e);
+        }
+    }
+
+    /**
+     * operation 타임아웃을 항상 적용하는 JdbcTemplate
+     * 기본 JdbcTemplate 은 트랜잭션 timeout 이 있으면 그 값으로 덮어쓰므로 설정 후에 다시 적용한다.
+     */
+    public JdbcTemplate template(DataSource dataSource, Operation operation) {
+        return new JdbcTemplate(dataSource) {
+            @Override
+            protected void applyStatementSettings(Statement stmt) throws SQLException {
+                super.applyStatementSettings(stmt);
+                apply(stmt, dataSource, operation);
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC DatabaseClient 사용 - MemberRepositoryV5 의 리액티브 버전
+ * 예외는 DatabaseClient 가 DataAccessException 으로 변환한다. (JdbcTemplate 과 같은 계층)
+ * 없는 회원 조회는 V5 의 queryForObject 처럼 EmptyResultDataAccessException
+ */
+@Slf4j
+public class ReactiveMemberRepository {
+
+    private final DatabaseClient client;
+
+    public ReactiveMemberRepository(ConnectionFactory connectionFactory) {
+        this.client = DatabaseClient.create(connectionFactory);
+    }
+
+    public Mono<Member> save(Member member) {
+        String sql = "insert into member(member_id, money) values (:memberId, :money)";
+        return client.sql(sql)
+                .bind("memberId", member.getMemberId())
+                .bind("money", member.getMoney())
+                .fetch().rowsUpdated()
+                .thenReturn(member);
+    }
+
+    public Mono<Member> findById(String memberId) {
+        String sql = "select * from member where member_id = :memberId";
+        return client.sql(sql)
+                .bind("memberId", memberId)
+                .map(ReactiveMemberRepository::toMember)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new EmptyResultDataAccessException(1)));
+    }
+
+    public Flux<Member> findAll() {
+        String sql = "select * from member order by member_id";
+        return client.sql(sql)
+                .map(ReactiveMemberRepository::toMember)
+                .all();
+    }
+
+    public Mono<Void> update(String memberId, int money) {
+        String sql = "update member set money = :money where member_id = :memberId";
+        return client.sql(sql)
+                .bind("money", money)
+                .bind("memberId", memberId)
+                .fetch().rowsUpdated()
+                .then();
+    }
+
+    public Mono<Void> delete(String memberId) {
+        String sql = "delete from member where member_id = :memberId";
+        return client.sql(sql)
+                .bind("memberId", memberId)
+                .fetch().rowsUpdated()
+                .then();
+    }
+
+    private static Member toMember(Readable row) {
+        return new Member(row.get("member_id", String.class), row.get("money", Integer.class));
+    }
+}
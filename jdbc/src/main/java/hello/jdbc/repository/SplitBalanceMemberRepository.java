@@ -0,0 +1,233 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 인기 계좌 잔액 분산 (split balance)
+ * hot 계좌는 잔액을 member_balance_slot 의 K 개 슬롯에 나눠 저장한다. (sql/member_balance_slot.sql)
+ * - 입금(credit): 임의의 슬롯 하나만 갱신 -> 같은 로우에 대한 락 경합이 1/K 로 줄어든다.
+ * - 출금(debit): 슬롯을 순서대로 잠그고 합계를 확인한 뒤 앞 슬롯부터 차감 (guarded sweep)
+ * - 조회: member.money + 슬롯 합계
+ * hot 여부는 member.balance_slots 에 저장한다. 여러 서버가 같은 DB 를 써도 같은 값을 본다.
+ * slotHints 는 어느 쪽 로우를 갱신할지 고르는 힌트일 뿐이고, 쓰기는 DB 의 balance_slots 로 다시 확인한다.
+ * (힌트가 틀리면 갱신 0건 -> 기본 로우를 잠그고 처리)
+ * hot 계좌 지정/해제는 HotAccountAdmin 사용
+ */
+@Slf4j
+public class SplitBalanceMemberRepository implements MemberRepository {
+
+    private final MemberRepository target;
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+    private final Map<String, Integer> slotHints = new ConcurrentHashMap<>();
+
+    public SplitBalanceMemberRepository(MemberRepository target, DataSource dataSource) {
+        this.target = target;
+        this.template = new JdbcTemplate(dataSource);
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        reloadHotAccounts();
+    }
+
+    public void reloadHotAccounts() {
+        slotHints.clear();
+        template.query("select member_id, balance_slots from member where balance_slots > 0",
+                rs -> {
+                    slotHints.put(rs.getString(1), rs.getInt(2));
+                });
+    }
+
+    public boolean isHot(String memberId) {
+        return balanceSlots(memberId) > 0;
+    }
+
+    @Override
+    public Member save(Member member) {
+        return target.save(member);
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        String sql = "select m.money + coalesce((select sum(s.money) from member_balance_slot s"
+                + " where s.member_id = m.member_id), 0) from member m where m.member_id = ?";
+        List<Integer> money = template.queryForList(sql, Integer.class, memberId);
+        if (money.isEmpty()) {
+            throw new MemberNotFoundException(memberId);
+        }
+        return new Member(memberId, money.get(0));
+    }
+
+    /**
+     * hot 계좌는 현재 잔액과의 차이만큼 입금/출금으로 바꿔서 처리한다.
+     */
+    @Override
+    public void update(String memberId, int money) {
+        if (!hintedHot(memberId) && template.update(
+                "update member set money = ? where member_id=? and balance_slots = 0", money, memberId) > 0) {
+            return;
+        }
+        txTemplate.executeWithoutResult(status -> {
+            Balance balance = lockBalance(memberId);
+            if (balance == null) {
+                return;
+            }
+            int delta = money - balance.total();
+            if (delta > 0) {
+                template.update("update member set money = money + ? where member_id=?", delta, memberId);
+            } else if (delta < 0) {
+                balance.take(-delta);
+            }
+        });
+    }
+
+    @Override
+    public void delete(String memberId) {
+        txTemplate.executeWithoutResult(status -> {
+            template.update("delete from member_balance_slot where member_id=?", memberId);
+            target.delete(memberId);
+        });
+        slotHints.remove(memberId);
+    }
+
+    public void credit(String memberId, int amount) {
+        Integer slots = slotHints.get(memberId);
+        int updated;
+        if (slots == null) {
+            updated = template.update(
+                    "update member set money = money + ? where member_id=? and balance_slots = 0", amount, memberId);
+        } else {
+            int slot = ThreadLocalRandom.current().nextInt(slots);
+            updated = template.update(
+                    "update member_balance_slot set money = money + ? where member_id=? and slot=?", amount, memberId, slot);
+        }
+        if (updated > 0) {
+            return;
+        }
+        //힌트가 틀렸다 (promote/demote 진행 중이거나 다른 서버가 변경) - 기본 로우를 잠그고 기본 로우에 입금
+        //조회는 기본 로우 + 슬롯 합계이므로 hot 이어도 맞고, 잠근 동안에는 promote/demote 가 끼어들 수 없다
+        txTemplate.executeWithoutResult(status -> {
+            if (lockBalance(memberId) == null) {
+                throw new MemberNotFoundException(memberId);
+            }
+            template.update("update member set money = money + ? where member_id=?", amount, memberId);
+        });
+    }
+
+    public void debit(String memberId, int amount) {
+        if (!hintedHot(memberId) && template.update(
+                "update member set money = money - ? where member_id=? and balance_slots = 0 and money >= ?",
+                amount, memberId, amount) > 0) {
+            return;
+        }
+        //hot 계좌, 잔액 부족, 없는 회원은 잠그고 확인한다
+        txTemplate.executeWithoutResult(status -> {
+            Balance balance = lockBalance(memberId);
+            if (balance == null) {
+                throw new MemberNotFoundException(memberId);
+            }
+            if (balance.total() < amount) {
+                throw new IllegalStateException("잔액 부족 memberId=" + memberId);
+            }
+            balance.take(amount);
+        });
+    }
+
+    /**
+     * 기본 로우 -> 슬롯 순서로 잠근다. (promote/demote 와 같은 순서)
+     * @return 없는 회원이면 null
+     */
+    private Balance lockBalance(String memberId) {
+        List<Map<String, Object>> base = template.queryForList(
+                "select money, balance_slots from member where member_id=? for update", memberId);
+        if (base.isEmpty()) {
+            slotHints.remove(memberId);
+            return null;
+        }
+        int slots = ((Number) base.get(0).get("BALANCE_SLOTS")).intValue();
+        remember(memberId, slots);
+        List<Map<String, Object>> slotRows = slots == 0 ? List.of() : template.queryForList(
+                "select slot, money from member_balance_slot where member_id=? order by slot for update", memberId);
+        return new Balance(memberId, ((Number) base.get(0).get("MONEY")).intValue(), slotRows);
+    }
+
+    /**
+     * DB 의 balance_slots 를 읽고 힌트를 맞춘다.
+     */
+    private int balanceSlots(String memberId) {
+        List<Integer> slots = template.queryForList(
+                "select balance_slots from member where member_id=?", Integer.class, memberId);
+        if (slots.isEmpty()) {
+            slotHints.remove(memberId);
+            throw new MemberNotFoundException(memberId);
+        }
+        remember(memberId, slots.get(0));
+        return slots.get(0);
+    }
+
+    private boolean hintedHot(String memberId) {
+        return slotHints.containsKey(memberId);
+    }
+
+    void remember(String memberId, int slots) {
+        if (slots > 0) {
+            slotHints.put(memberId, slots);
+        } else {
+            slotHints.remove(memberId);
+        }
+    }
+
+    /**
+     * 잠근 잔액 - 기본 로우 + 슬롯
+     */
+    private class Balance {
+        private final String memberId;
+        private final int base;
+        private final List<Map<String, Object>> slots;
+
+        private Balance(String memberId, int base, List<Map<String, Object>> slots) {
+            this.memberId = memberId;
+            this.base = base;
+            this.slots = slots;
+        }
+
+        private int total() {
+            int total = base;
+            for (Map<String, Object> slot : slots) {
+                total += ((Number) slot.get("MONEY")).intValue();
+            }
+            return total;
+        }
+
+        /**
+         * 앞 슬롯부터 차감하고 모자라면 기본 로우에서 차감
+         */
+        private void take(int amount) {
+            int remaining = amount;
+            for (Map<String, Object> slot : slots) {
+                int money = ((Number) slot.get("MONEY")).intValue();
+                if (remaining == 0) {
+                    break;
+                }
+                if (money <= 0) {
+                    continue;
+                }
+                int take = Math.min(money, remaining);
+                template.update("update member_balance_slot set money = money - ? where member_id=? and slot=?",
+                        take, memberId, ((Number) slot.get("SLOT")).intValue());
+                remaining -= take;
+            }
+            if (remaining > 0) {
+                template.update("update member set money = money - ? where member_id=?", remaining, memberId);
+            }
+        }
+    }
+}
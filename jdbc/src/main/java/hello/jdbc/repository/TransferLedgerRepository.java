@@ -0,0 +1,90 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.LedgerEntry;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * 이체 원장 (append-only)
+ * 이체는 member 로우를 갱신하지 않고 transfer_ledger 에 증감분만 추가한다. (sql/transfer_ledger.sql)
+ * member.money 반영은 LedgerMaterializer 가 비동기로 한다.
+ *
+ * 원장 로우는 추가만 하고 고치지 않는다. 반영 여부는 ledger_checkpoint.last_seq 하나로 판단한다. (seq > last_seq 가 미반영)
+ * identity 값은 커밋 순서와 다르게 발급될 수 있으므로 (낮은 seq 가 나중에 커밋)
+ * 체크포인트를 빈자리 없이 이어지는 seq 까지만 올리는 일은 LedgerMaterializer 가 맡는다.
+ */
+public class TransferLedgerRepository {
+
+    private static final String CHECKPOINT_NAME = "member";
+
+    private static final RowMapper<LedgerEntry> LEDGER_ROW_MAPPER =
+            (rs, rowNum) -> new LedgerEntry(rs.getLong("seq"), rs.getString("member_id"), rs.getInt("delta"));
+
+    private final JdbcTemplate template;
+
+    public TransferLedgerRepository(DataSource dataSource) {
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    public void appendAll(List<LedgerEntry> entries) {
+        String sql = "insert into transfer_ledger(member_id, delta) values (?, ?)";
+        template.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, entries.get(i).getMemberId());
+                ps.setInt(2, entries.get(i).getDelta());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    /**
+     * 반영된 잔액 + 체크포인트 이후 증감분 (한 문장으로 조회해서 반영 도중에도 일관된 값)
+     */
+    public int findBalance(String memberId) {
+        String sql = "select m.money + coalesce((select sum(l.delta) from transfer_ledger l"
+                + " where l.member_id = m.member_id and l.seq > c.last_seq), 0)"
+                + " from member m, ledger_checkpoint c where m.member_id = ? and c.name = ?";
+        List<Integer> balance = template.queryForList(sql, Integer.class, memberId, CHECKPOINT_NAME);
+        if (balance.isEmpty()) {
+            throw new NoSuchElementException("member not found memberId= " + memberId);
+        }
+        return balance.get(0);
+    }
+
+    /**
+     * afterSeq 다음 원장 (seq 순) - 중간에 아직 커밋되지 않은 seq 가 빠져 있을 수 있다.
+     */
+    public List<LedgerEntry> findAfter(long afterSeq, int limit) {
+        String sql = "select seq, member_id, delta from transfer_ledger where seq > ? order by seq limit ?";
+        return template.query(sql, LEDGER_ROW_MAPPER, afterSeq, limit);
+    }
+
+    /**
+     * 체크포인트 로우를 잠근다. 반영 작업은 이 락으로 직렬화된다.
+     */
+    public long lockCheckpoint() {
+        String sql = "select last_seq from ledger_checkpoint where name = ? for update";
+        return template.queryForObject(sql, Long.class, CHECKPOINT_NAME);
+    }
+
+    public void updateCheckpoint(long lastSeq) {
+        String sql = "update ledger_checkpoint set last_seq = ? where name = ? and last_seq < ?";
+        template.update(sql, lastSeq, CHECKPOINT_NAME, lastSeq);
+    }
+
+    public int countMembers(String memberId1, String memberId2) {
+        String sql = "select count(*) from member where member_id in (?, ?)";
+        return template.queryForObject(sql, Integer.class, memberId1, memberId2);
+    }
+}
@@ -0,0 +1,27 @@
+package hello.jdbc.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DB 에서 실행한 이체 결과 코드
+ */
+@Getter
+@RequiredArgsConstructor
+public enum TransferStatus {
+    OK(0),
+    INSUFFICIENT_FUNDS(1),
+    MEMBER_NOT_FOUND(2),
+    VALIDATION_FAILED(3);
+
+    private final int code;
+
+    public static TransferStatus of(int code) {
+        for (TransferStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("unknown transfer status code=" + code);
+    }
+}
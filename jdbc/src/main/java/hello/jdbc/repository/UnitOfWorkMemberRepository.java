@@ -0,0 +1,193 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit of Work - 쓰기 지연
+ * 트랜잭션 안의 update 는 메모리에만 기록하고, beforeCommit 에서 하나의 JDBC 배치로 반영한다.
+ * - 같은 회원을 여러 번 update 하면 마지막 값만 반영
+ * - 조회한 값과 같은 값으로 update 하면 반영하지 않음 (dirty checking)
+ * - member_id 순서로 반영해서 트랜잭션끼리 락 획득 순서를 맞춘다.
+ * 트랜잭션이 없으면 바로 target 에 위임한다.
+ * - 반영된 로우가 0 인 회원이 있으면 EmptyResultDataAccessException 으로 커밋을 막는다.
+ * - 읽기 전용 트랜잭션에 반영할 변경이 남아 있으면 IllegalStateException 으로 커밋을 막는다.
+ *
+ * 주의! dataSource 는 트랜잭션 매니저와 같은 DataSource 여야 한다.
+ */
+@Slf4j
+public class UnitOfWorkMemberRepository implements MemberRepository {
+
+    private static final String UPDATE_SQL = "update member set money=? where member_id=?";
+
+    private final MemberRepository target;
+    private final JdbcTemplate template;
+    private final AtomicLong flushedStatements = new AtomicLong();
+    private final AtomicLong coalescedUpdates = new AtomicLong();
+    private final AtomicLong skippedUpdates = new AtomicLong();
+
+    public UnitOfWorkMemberRepository(MemberRepository target, DataSource dataSource) {
+        this.target = target;
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public Member save(Member member) {
+        Member saved = target.save(member);
+        UnitOfWork uow = currentUnitOfWork();
+        if (uow != null) {
+            uow.loaded.put(saved.getMemberId(), saved.getMoney());
+        }
+        return saved;
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        UnitOfWork uow = currentUnitOfWork();
+        if (uow == null) {
+            return target.findById(memberId);
+        }
+        Integer pending = uow.pending.get(memberId);
+        if (pending != null) {
+            return new Member(memberId, pending);
+        }
+        Member member = target.findById(memberId);
+        uow.loaded.put(memberId, member.getMoney());
+        return member;
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        UnitOfWork uow = currentUnitOfWork();
+        if (uow == null) {
+            target.update(memberId, money);
+            return;
+        }
+        if (uow.pending.put(memberId, money) != null) {
+            coalescedUpdates.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void delete(String memberId) {
+        UnitOfWork uow = currentUnitOfWork();
+        if (uow != null) {
+            uow.pending.remove(memberId);
+            uow.loaded.remove(memberId);
+        }
+        target.delete(memberId);
+    }
+
+    public long getFlushedStatements() {
+        return flushedStatements.get();
+    }
+
+    public long getCoalescedUpdates() {
+        return coalescedUpdates.get();
+    }
+
+    public long getSkippedUpdates() {
+        return skippedUpdates.get();
+    }
+
+    private UnitOfWork currentUnitOfWork() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        UnitOfWork uow = (UnitOfWork) TransactionSynchronizationManager.getResource(this);
+        if (uow == null) {
+            uow = new UnitOfWork();
+            TransactionSynchronizationManager.bindResource(this, uow);
+            TransactionSynchronizationManager.registerSynchronization(new UnitOfWorkSynchronization(uow));
+        }
+        return uow;
+    }
+
+    private void flush(UnitOfWork uow, boolean readOnly) {
+        List<Map.Entry<String, Integer>> dirty = new ArrayList<>(uow.pending.size());
+        for (Map.Entry<String, Integer> entry : uow.pending.entrySet()) {
+            if (Objects.equals(uow.loaded.get(entry.getKey()), entry.getValue())) {
+                skippedUpdates.incrementAndGet();
+            } else {
+                dirty.add(entry);
+            }
+        }
+        uow.pending.clear();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        if (readOnly) {
+            throw new IllegalStateException("read-only transaction has pending updates size=" + dirty.size());
+        }
+
+        int[] rows = template.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<String, Integer> entry = dirty.get(i);
+                ps.setInt(1, entry.getValue());
+                ps.setString(2, entry.getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return dirty.size();
+            }
+        });
+        flushedStatements.addAndGet(dirty.size());
+        for (int i = 0; i < rows.length; i++) {
+            //드라이버가 건수를 모르면 SUCCESS_NO_INFO(-2) 를 돌려준다. 0 만 실패로 본다.
+            if (rows[i] == 0) {
+                throw new EmptyResultDataAccessException("member not found memberId=" + dirty.get(i).getKey(), 1);
+            }
+        }
+        log.debug("unit of work flush size={}", dirty.size());
+    }
+
+    private static class UnitOfWork {
+        private final Map<String, Integer> pending = new TreeMap<>();
+        private final Map<String, Integer> loaded = new HashMap<>();
+    }
+
+    private class UnitOfWorkSynchronization implements TransactionSynchronization {
+        private final UnitOfWork uow;
+
+        UnitOfWorkSynchronization(UnitOfWork uow) {
+            this.uow = uow;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(UnitOfWorkMemberRepository.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(UnitOfWorkMemberRepository.this, uow);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            flush(uow, readOnly);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(UnitOfWorkMemberRepository.this);
+        }
+    }
+}
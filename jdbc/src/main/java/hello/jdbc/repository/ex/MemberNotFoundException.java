@@ -0,0 +1,24 @@
+package hello.jdbc.repository.ex;
+
+import java.util.NoSuchElementException;
+
+/**
+ * 회원 조회 결과 없음 - 메시지는 getMessage() 호출 시점에 만든다.
+ */
+public class MemberNotFoundException extends NoSuchElementException {
+
+	private final String memberId;
+
+	public MemberNotFoundException(String memberId) {
+		this.memberId = memberId;
+	}
+
+	public String getMemberId() {
+		return memberId;
+	}
+
+	@Override
+	public String getMessage() {
+		return "member not found memberId= " + memberId;
+	}
+}
@@ -0,0 +1,21 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * 동시성 한도 초과로 요청을 바로 거절할 때 사용 - 재시도 가능
+ */
+public class MyOverloadException extends MyDbException {
+	public MyOverloadException() {
+	}
+
+	public MyOverloadException(String message) {
+		super(message);
+	}
+
+	public MyOverloadException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public MyOverloadException(Throwable cause) {
+		super(cause);
+	}
+}
@@ -0,0 +1,21 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * 샤드 리밸런싱 중이라 요청을 거절할 때 사용 - 마이그레이션이 끝난 뒤 재시도
+ */
+public class MyShardMigrationException extends MyDbException {
+	public MyShardMigrationException() {
+	}
+
+	public MyShardMigrationException(String message) {
+		super(message);
+	}
+
+	public MyShardMigrationException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public MyShardMigrationException(Throwable cause) {
+		super(cause);
+	}
+}
@@ -0,0 +1,40 @@
+package hello.jdbc.repository.shard;
+
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import javax.sql.DataSource;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 샤드 하나 = DataSource 하나
+ * 기본 리포지토리는 MemberRepositoryV5
+ */
+@Getter
+public class Shard {
+
+    private final String name;
+    private final DataSource dataSource;
+    private final MemberRepository repository;
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+
+    public Shard(String name, DataSource dataSource) {
+        this(name, dataSource, new MemberRepositoryV5(dataSource));
+    }
+
+    public Shard(String name, DataSource dataSource, MemberRepository repository) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.repository = repository;
+        this.template = new JdbcTemplate(dataSource);
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Override
+    public String toString() {
+        return "Shard(" + name + ")";
+    }
+}
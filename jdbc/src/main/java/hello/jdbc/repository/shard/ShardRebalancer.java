@@ -0,0 +1,116 @@
+package hello.jdbc.repository.shard;
+
+import hello.jdbc.repository.ex.MyShardMigrationException;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 샤드 확장 (온라인 리밸런싱)
+ * 1. 리포지토리를 새 링으로 전환 (이전 링도 함께 조회) - 끝나지 않은 이체 사가가 있으면 거절
+ * 2. 기존 샤드를 스캔해서 주인이 바뀐 회원만 한 건씩 이동
+ *    - 원본 샤드 트랜잭션에서 select for update 로 행을 잠근 채 대상 샤드에 복사(커밋)하고, 복사본을 확인한 뒤 원본 삭제
+ *    - 대상에 이미 복사본이 있으면 원본만 삭제한다. (중단된 이동 정리, 여러 번 실행해도 같은 결과)
+ * 3. 이전 링 제거 (실패하면 이전 링을 유지하고 resume() 으로 이어서 이동 - 양쪽에 남은 중복도 정리된다)
+ */
+@Slf4j
+public class ShardRebalancer {
+
+    private final ShardedMemberRepository repository;
+    private final TransferSagaRepository sagaRepository;
+
+    public ShardRebalancer(ShardedMemberRepository repository) {
+        this(repository, null);
+    }
+
+    /**
+     * 샤드 간 이체 사가를 쓰는 경우 - 끝나지 않은 사가가 있으면 확장을 거절한다.
+     * 사가 기록은 출금 샤드에, 입금 기록은 입금 샤드 이름으로 남아 있어서 회원이 이동하면 끝낼 수 없게 된다.
+     */
+    public ShardRebalancer(ShardedMemberRepository repository, TransferSagaRepository sagaRepository) {
+        this.repository = repository;
+        this.sagaRepository = sagaRepository;
+    }
+
+    /**
+     * @return 이동한 회원 수
+     */
+    public long expand(List<Shard> newShards) {
+        ShardRing oldRing = repository.beginMigration(newShards, this::checkNoPendingSagas);
+        return migrate(oldRing, repository.currentRing());
+    }
+
+    /**
+     * 쓰기 락 안에서 실행되므로 진행 중인 이체는 없다. 남은 DEBITED 사가는 중단된 것이다.
+     */
+    private void checkNoPendingSagas(ShardRing ring) {
+        if (sagaRepository == null) {
+            return;
+        }
+        for (Shard shard : ring.getShards()) {
+            int pending = sagaRepository.countPending(shard);
+            if (pending > 0) {
+                throw new MyShardMigrationException("pending transfer sagas on " + shard.getName()
+                        + " count=" + pending + ", run resumeSagas first");
+            }
+        }
+    }
+
+    /**
+     * 이동 중 실패했다면 두 링을 모두 조회하는 상태가 유지된다. 원인 해결 후 다시 이동한다.
+     */
+    public long resume() {
+        ShardRing oldRing = repository.previousRing();
+        if (oldRing == null) {
+            throw new IllegalStateException("no migration in progress");
+        }
+        return migrate(oldRing, repository.currentRing());
+    }
+
+    private long migrate(ShardRing oldRing, ShardRing newRing) {
+        long moved = 0;
+        for (Shard source : oldRing.getShards()) {
+            List<String> memberIds = source.getTemplate()
+                    .queryForList("select member_id from member", String.class);
+            for (String memberId : memberIds) {
+                Shard target = newRing.shardFor(memberId);
+                if (target != source && move(source, target, memberId)) {
+                    moved++;
+                }
+            }
+            log.info("shard {} rebalanced, moved so far={}", source.getName(), moved);
+        }
+        repository.finishMigration();
+        return moved;
+    }
+
+    /**
+     * 대상에 복사본이 이미 있으면(이전 이동이 원본 삭제 전에 실패) 대상 것을 남긴다.
+     * 복사본이 생긴 뒤의 쓰기는 새 위치부터 시도하므로 대상 쪽이 항상 최신이다.
+     */
+    private boolean move(Shard source, Shard target, String memberId) {
+        Boolean moved = source.getTxTemplate().execute(status -> {
+            List<Integer> money = source.getTemplate()
+                    .queryForList("select money from member where member_id=? for update", Integer.class, memberId);
+            if (money.isEmpty()) {
+                return false; //스캔 이후 삭제됨
+            }
+            if (findMoney(target, memberId).isEmpty()) {
+                target.getTxTemplate().executeWithoutResult(targetStatus -> target.getTemplate()
+                        .update("insert into member(member_id, money) values (?, ?)", memberId, money.get(0)));
+                //커밋된 복사본을 확인한 뒤에만 원본을 지운다
+                if (findMoney(target, memberId).isEmpty()) {
+                    throw new IllegalStateException("member copy not found on " + target.getName() + " memberId=" + memberId);
+                }
+            } else {
+                log.info("duplicate member reconciled, keep {} copy memberId={}", target.getName(), memberId);
+            }
+            source.getTemplate().update("delete from member where member_id=?", memberId);
+            return true;
+        });
+        return Boolean.TRUE.equals(moved);
+    }
+
+    private static List<Integer> findMoney(Shard shard, String memberId) {
+        return shard.getTemplate().queryForList("select money from member where member_id=?", Integer.class, memberId);
+    }
+}
@@ -0,0 +1,39 @@
+package hello.jdbc.repository.shard;
+
+import hello.jdbc.domain.Hashes;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 일관된 해시 (consistent hashing)
+ * 샤드마다 virtualNodes 개의 점을 링에 배치하고, memberId 해시 이후 처음 만나는 점의 샤드가 주인이다.
+ * 샤드를 추가해도 전체의 약 1/N 만 이동한다.
+ * 해시는 Hashes.hash64 - 예전 ShardRing.hash 와 같은 값이라 옮겨온 뒤에도 회원 배치는 그대로다.
+ */
+public class ShardRing {
+
+    private final List<Shard> shards;
+    private final TreeMap<Long, Shard> ring = new TreeMap<>();
+
+    public ShardRing(List<Shard> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("shards must not be empty");
+        }
+        this.shards = List.copyOf(shards);
+        for (Shard shard : shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(Hashes.hash64(shard.getName() + "#" + i), shard);
+            }
+        }
+    }
+
+    public Shard shardFor(String memberId) {
+        Map.Entry<Long, Shard> entry = ring.ceilingEntry(Hashes.hash64(memberId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+}
@@ -0,0 +1,298 @@
+package hello.jdbc.repository.shard;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.ex.MyShardMigrationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * 해시 샤딩 리포지토리
+ * memberId 의 일관된 해시로 샤드를 고르고 각 샤드의 MemberRepository 에 위임한다.
+ * 다건 조회/전체 스캔은 샤드별로 동시에 조회해서 합친다. (scatter-gather)
+ *
+ * 샤드 확장(ShardRebalancer) 중에는 새 링과 이전 링을 모두 들고 있으면서
+ * 새 위치 -> 이전 위치 순서로 찾는다.
+ * 샤드 트랜잭션에 묶여야 하는 작업(이체)은 executeWithoutMigration 으로 실행한다.
+ * 링 전환은 진행 중인 작업이 끝나기를 기다리고, 마이그레이션 중에는 새 작업을 거절한다.
+ */
+@Slf4j
+public class ShardedMemberRepository implements MemberRepository {
+
+    public static final int VIRTUAL_NODES = 128;
+
+    private static final RowMapper<Member> MEMBER_ROW_MAPPER =
+            (rs, rowNum) -> new Member(rs.getString("member_id"), rs.getInt("money"));
+
+    private final ExecutorService executor;
+    private volatile ShardRing ring;
+    private volatile ShardRing previousRing; //마이그레이션 중에만 존재
+    private final ReentrantReadWriteLock migrationLock = new ReentrantReadWriteLock();
+
+    public ShardedMemberRepository(List<Shard> shards, ExecutorService executor) {
+        this.ring = new ShardRing(shards, VIRTUAL_NODES);
+        this.executor = executor;
+    }
+
+    public Shard shardFor(String memberId) {
+        return ring.shardFor(memberId);
+    }
+
+    public List<Shard> getShards() {
+        return ring.getShards();
+    }
+
+    public Shard shardByName(String name) {
+        for (Shard shard : ring.getShards()) {
+            if (shard.getName().equals(name)) {
+                return shard;
+            }
+        }
+        throw new IllegalArgumentException("unknown shard " + name);
+    }
+
+    /**
+     * 링이 바뀌지 않는 동안 실행한다. 마이그레이션 중이면 MyShardMigrationException (재시도 가능)
+     */
+    public <T> T executeWithoutMigration(Supplier<T> work) {
+        migrationLock.readLock().lock();
+        try {
+            if (previousRing != null) {
+                throw new MyShardMigrationException("shard migration in progress");
+            }
+            return work.get();
+        } finally {
+            migrationLock.readLock().unlock();
+        }
+    }
+
+    public boolean isMigrating() {
+        return previousRing != null;
+    }
+
+    @Override
+    public Member save(Member member) {
+        return ring.shardFor(member.getMemberId()).getRepository().save(member);
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        ShardRing previous = previousRing;
+        Shard owner = ring.shardFor(memberId);
+        Shard oldOwner = previous == null ? owner : previous.shardFor(memberId);
+        if (oldOwner == owner) {
+            return owner.getRepository().findById(memberId);
+        }
+        //마이그레이션 중: 새 위치 -> 이전 위치 -> (방금 이동했다면) 새 위치
+        try {
+            return owner.getRepository().findById(memberId);
+        } catch (NoSuchElementException | EmptyResultDataAccessException e) {
+            try {
+                return oldOwner.getRepository().findById(memberId);
+            } catch (NoSuchElementException | EmptyResultDataAccessException ex) {
+                return owner.getRepository().findById(memberId);
+            }
+        }
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        ShardRing previous = previousRing;
+        Shard owner = ring.shardFor(memberId);
+        Shard oldOwner = previous == null ? owner : previous.shardFor(memberId);
+        if (oldOwner == owner) {
+            owner.getRepository().update(memberId, money);
+            return;
+        }
+        String sql = "update member set money=? where member_id=?";
+        if (owner.getTemplate().update(sql, money, memberId) > 0
+                || oldOwner.getTemplate().update(sql, money, memberId) > 0) {
+            return;
+        }
+        owner.getTemplate().update(sql, money, memberId);
+    }
+
+    /**
+     * 한 문장으로 증감 - 마이그레이션 중이면 새 위치 -> 이전 위치 순서로 시도한다.
+     */
+    @Override
+    public Member addMoneyReturning(String memberId, int delta) {
+        ShardRing previous = previousRing;
+        Shard owner = ring.shardFor(memberId);
+        Shard oldOwner = previous == null ? owner : previous.shardFor(memberId);
+        if (oldOwner == owner) {
+            return owner.getRepository().addMoneyReturning(memberId, delta);
+        }
+        String sql = "select member_id, money from final table (update member set money = money + ? where member_id=?)";
+        List<Member> members = owner.getTemplate().query(sql, MEMBER_ROW_MAPPER, delta, memberId);
+        if (members.isEmpty()) {
+            members = oldOwner.getTemplate().query(sql, MEMBER_ROW_MAPPER, delta, memberId);
+        }
+        if (members.isEmpty()) {
+            members = owner.getTemplate().query(sql, MEMBER_ROW_MAPPER, delta, memberId);
+        }
+        if (members.isEmpty()) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return members.get(0);
+    }
+
+    @Override
+    public void delete(String memberId) {
+        ShardRing previous = previousRing;
+        Shard owner = ring.shardFor(memberId);
+        owner.getRepository().delete(memberId);
+        if (previous != null && previous.shardFor(memberId) != owner) {
+            previous.shardFor(memberId).getRepository().delete(memberId);
+        }
+    }
+
+    /**
+     * 다건 조회 - 없는 회원은 결과에서 빠진다.
+     */
+    public Map<String, Member> findAll(Collection<String> memberIds) {
+        Map<String, Member> result = multiGet(ring, memberIds);
+        ShardRing previous = previousRing;
+        if (previous != null && result.size() < memberIds.size()) {
+            List<String> missing = new ArrayList<>();
+            for (String memberId : memberIds) {
+                if (!result.containsKey(memberId)) {
+                    missing.add(memberId);
+                }
+            }
+            result.putAll(multiGet(previous, missing));
+        }
+        return result;
+    }
+
+    /**
+     * 전체 스캔 - 마이그레이션 중 양쪽에 잠깐 같이 있는 회원은 한 번만, 새 위치의 값으로 반환한다.
+     */
+    public List<Member> findAll() {
+        List<Shard> shards = new ArrayList<>(ring.getShards());
+        ShardRing previous = previousRing;
+        if (previous != null) {
+            for (Shard shard : previous.getShards()) {
+                if (!shards.contains(shard)) {
+                    shards.add(shard);
+                }
+            }
+        }
+
+        List<Future<List<Member>>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(executor.submit(() -> shard.getTemplate().query("select * from member", MEMBER_ROW_MAPPER)));
+        }
+        ShardRing current = ring;
+        Map<String, Member> result = new LinkedHashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Shard shard = shards.get(i);
+            for (Member member : await(futures.get(i))) {
+                //이동 중 양쪽에 남은 중복은 새 위치(쓰기를 먼저 받는 쪽)의 값이 최신
+                if (current.shardFor(member.getMemberId()) == shard) {
+                    result.put(member.getMemberId(), member);
+                } else {
+                    result.putIfAbsent(member.getMemberId(), member);
+                }
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    ShardRing beginMigration(List<Shard> shards) {
+        return beginMigration(shards, current -> { });
+    }
+
+    /**
+     * precondition 은 진행 중인 작업이 모두 끝난 뒤(쓰기 락) 현재 링으로 실행한다. 예외를 던지면 전환하지 않는다.
+     */
+    ShardRing beginMigration(List<Shard> shards, Consumer<ShardRing> precondition) {
+        migrationLock.writeLock().lock();
+        try {
+            if (previousRing != null) {
+                throw new IllegalStateException("migration already in progress");
+            }
+            precondition.accept(ring);
+            ShardRing old = ring;
+            previousRing = old;
+            ring = new ShardRing(shards, VIRTUAL_NODES);
+            log.info("shard migration started {} -> {}", old.getShards(), shards);
+            return old;
+        } finally {
+            migrationLock.writeLock().unlock();
+        }
+    }
+
+    void finishMigration() {
+        migrationLock.writeLock().lock();
+        try {
+            previousRing = null;
+            log.info("shard migration finished shards={}", ring.getShards());
+        } finally {
+            migrationLock.writeLock().unlock();
+        }
+    }
+
+    ShardRing currentRing() {
+        return ring;
+    }
+
+    ShardRing previousRing() {
+        return previousRing;
+    }
+
+    private Map<String, Member> multiGet(ShardRing ring, Collection<String> memberIds) {
+        if (memberIds.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        Map<Shard, List<String>> byShard = new LinkedHashMap<>();
+        for (String memberId : memberIds) {
+            byShard.computeIfAbsent(ring.shardFor(memberId), shard -> new ArrayList<>()).add(memberId);
+        }
+
+        List<Future<List<Member>>> futures = new ArrayList<>(byShard.size());
+        for (Map.Entry<Shard, List<String>> entry : byShard.entrySet()) {
+            Shard shard = entry.getKey();
+            List<String> ids = entry.getValue();
+            String sql = "select * from member where member_id in ("
+                    + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+            futures.add(executor.submit(() -> shard.getTemplate().query(sql, MEMBER_ROW_MAPPER, ids.toArray())));
+        }
+
+        Map<String, Member> result = new LinkedHashMap<>();
+        for (Future<List<Member>> future : futures) {
+            for (Member member : await(future)) {
+                result.put(member.getMemberId(), member);
+            }
+        }
+        return result;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
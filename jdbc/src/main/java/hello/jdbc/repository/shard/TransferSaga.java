@@ -0,0 +1,20 @@
+package hello.jdbc.repository.shard;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 샤드 간 이체 사가 한 건 (transfer_saga 행)
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TransferSaga {
+
+    private final String sagaId;
+    private final String fromId;
+    private final String toId;
+    private final String toShard;
+    private final int money;
+}
@@ -0,0 +1,76 @@
+package hello.jdbc.repository.shard;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * 샤드 간 이체 사가 기록 (sql/transfer_saga.sql, 모든 샤드에 생성)
+ * - transfer_saga: 출금 샤드에 출금과 같은 트랜잭션으로 기록한다. DEBITED -> COMPLETED / COMPENSATED
+ * - transfer_saga_credit: 입금 샤드에 입금과 같은 트랜잭션으로 기록한다. 같은 사가를 두 번 입금하지 않도록
+ */
+public class TransferSagaRepository {
+
+    public static final String DEBITED = "DEBITED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String COMPENSATED = "COMPENSATED";
+
+    private static final RowMapper<TransferSaga> SAGA_ROW_MAPPER = (rs, rowNum) -> new TransferSaga(
+            rs.getString("saga_id"), rs.getString("from_id"), rs.getString("to_id"),
+            rs.getString("to_shard"), rs.getInt("money"));
+
+    public void insert(Shard fromShard, TransferSaga saga) {
+        String sql = "insert into transfer_saga(saga_id, from_id, to_id, to_shard, money, status) values (?, ?, ?, ?, ?, ?)";
+        fromShard.getTemplate().update(sql, saga.getSagaId(), saga.getFromId(), saga.getToId(),
+                saga.getToShard(), saga.getMoney(), DEBITED);
+    }
+
+    /**
+     * 상태 전이 - expected 상태일 때만 바꾼다.
+     * @return 바꿨으면 true
+     */
+    public boolean transition(Shard fromShard, String sagaId, String expected, String status) {
+        String sql = "update transfer_saga set status=? where saga_id=? and status=?";
+        return fromShard.getTemplate().update(sql, status, sagaId, expected) > 0;
+    }
+
+    /**
+     * @return 처음 기록했으면 true, 이미 입금된 사가면 false
+     */
+    public boolean recordCredit(Shard toShard, String sagaId) {
+        String sql = "insert into transfer_saga_credit(saga_id) values (?)";
+        try {
+            toShard.getTemplate().update(sql, sagaId);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public boolean isCredited(Shard toShard, String sagaId) {
+        String sql = "select count(*) from transfer_saga_credit where saga_id=?";
+        Integer count = toShard.getTemplate().queryForObject(sql, Integer.class, sagaId);
+        return count != null && count > 0;
+    }
+
+    /**
+     * 끝나지 않은(DEBITED) 사가 수 - 나이와 관계없이 센다.
+     */
+    public int countPending(Shard fromShard) {
+        String sql = "select count(*) from transfer_saga where status=?";
+        Integer count = fromShard.getTemplate().queryForObject(sql, Integer.class, DEBITED);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * olderThan 보다 오래 DEBITED 로 남아 있는 사가 - 진행 중인 사가와 겹치지 않도록 여유를 둔다.
+     */
+    public List<TransferSaga> findPending(Shard fromShard, Duration olderThan) {
+        String sql = "select * from transfer_saga where status=? and created_at < ? order by created_at";
+        return fromShard.getTemplate().query(sql, SAGA_ROW_MAPPER, DEBITED,
+                Timestamp.from(Instant.now().minus(olderThan)));
+    }
+}
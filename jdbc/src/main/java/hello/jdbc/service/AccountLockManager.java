@@ -0,0 +1,112 @@
+package hello.jdbc.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * JVM 내부 계좌 락 (lock striping)
+ * memberId 해시로 고른 stripe 락을 항상 stripe 번호 순서로 획득해서 교착 상태를 피한다.
+ * 트랜잭션(커넥션 획득) 전에 잡아야 대기하는 동안 커넥션을 점유하지 않는다.
+ */
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final AtomicLongArray contended;
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public AccountLockManager(int stripeCount) {
+        int size = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1; //2의 제곱수로 올림
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.contended = new AtomicLongArray(size);
+    }
+
+    public <T> T withLocks(String memberId1, String memberId2, Supplier<T> action) {
+        int first = stripeOf(memberId1);
+        int second = stripeOf(memberId2);
+        if (first > second) {
+            int tmp = first;
+            first = second;
+            second = tmp;
+        }
+
+        lock(first);
+        try {
+            if (second != first) {
+                lock(second);
+            }
+            try {
+                return action.get();
+            } finally {
+                if (second != first) {
+                    stripes[second].unlock();
+                }
+            }
+        } finally {
+            stripes[first].unlock();
+        }
+    }
+
+    public void runWithLocks(String memberId1, String memberId2, Runnable action) {
+        withLocks(memberId1, memberId2, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    int stripeOf(String memberId) {
+        int h = memberId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void lock(int stripe) {
+        ReentrantLock lock = stripes[stripe];
+        acquisitions.incrementAndGet();
+        if (lock.tryLock()) {
+            return;
+        }
+        contended.incrementAndGet(stripe);
+        long start = System.nanoTime();
+        lock.lock();
+        long waited = System.nanoTime() - start;
+        waitNanos.addAndGet(waited);
+        maxWaitNanos.accumulate(waited);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public long getContendedCount() {
+        long sum = 0;
+        for (int i = 0; i < contended.length(); i++) {
+            sum += contended.get(i);
+        }
+        return sum;
+    }
+
+    public long getContendedCount(int stripe) {
+        return contended.get(stripe);
+    }
+
+    public long getTotalWaitNanos() {
+        return waitNanos.get();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+}
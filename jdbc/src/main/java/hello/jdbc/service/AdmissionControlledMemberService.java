@@ -0,0 +1,25 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * MemberServiceV4 앞단 입장 제어
+ * ConcurrencyLimiter 를 트랜잭션(커넥션 획득) 밖에서 통과시키고, 한도가 차면 조회부터 거절한다.
+ */
+@RequiredArgsConstructor
+public class AdmissionControlledMemberService {
+
+    private final ConcurrencyLimiter limiter;
+    private final MemberServiceV4 memberService;
+    private final MemberRepository memberRepository;
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        limiter.run(RequestPriority.TRANSFER, () -> memberService.accountTransfer(fromId, toId, money));
+    }
+
+    public Member findById(String memberId) {
+        return limiter.execute(RequestPriority.READ, () -> memberRepository.findById(memberId));
+    }
+}
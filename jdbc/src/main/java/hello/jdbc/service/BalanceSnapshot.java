@@ -0,0 +1,74 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.MemberValue;
+
+/**
+ * 잔액 스냅샷 - 한 시점의 불변 view
+ * 같은 스냅샷에서 읽은 값끼리는 항상 일관된다. (한 이체의 출금/입금은 같은 버전에 함께 반영)
+ * 키는 값이 들고 있는 회원 ID 문자열 그대로다. (조회할 때 키를 새로 만들지 않는다)
+ */
+public class BalanceSnapshot {
+
+    private final long version;
+    private final long loadedAt;
+    private final PersistentMap<String, Entry> entries;
+    private final int size;
+    private final long totalMoney;
+
+    BalanceSnapshot(long version, long loadedAt, PersistentMap<String, Entry> entries, int size, long totalMoney) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.entries = entries;
+        this.size = size;
+        this.totalMoney = totalMoney;
+    }
+
+    /**
+     * @return 없거나 삭제된 회원이면 null
+     */
+    public MemberValue get(String memberId) {
+        Entry entry = entries.get(memberId);
+        return entry != null ? entry.value : null;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 마지막으로 DB 에서 전체를 읽은 시각 (System.nanoTime)
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    public long getAgeNanos() {
+        return System.nanoTime() - loadedAt;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTotalMoney() {
+        return totalMoney;
+    }
+
+    PersistentMap<String, Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * 회원별 값과 그 값을 쓴 변경의 순번 - 늦게 도착한 이전 변경이 덮어쓰지 않도록 비교한다.
+     * value 가 null 이면 삭제 표시
+     */
+    static class Entry {
+        final MemberValue value;
+        final long seq;
+
+        Entry(MemberValue value, long seq) {
+            this.value = value;
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.MemberValue;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import hello.jdbc.service.BalanceSnapshot.Entry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 읽기 전용 잔액 스냅샷 (copy-on-write)
+ * member 테이블 전체를 메모리에 올려두고, 조회는 DB 없이 volatile 읽기 한 번으로 한 시점의 view 를 얻는다.
+ *
+ * 쓰기 경로는 track() 으로 감싼 MemberRepository 를 사용한다.
+ * 트랜잭션 안의 변경은 모아 두었다가 afterCommit 에서 한 번에 새 버전으로 발행한다. (롤백되면 버리기만 한다)
+ * 변경마다 DB 에 쓴 직후(행 락을 잡은 상태) 순번을 매기고, 회원별로 더 큰 순번만 반영해서
+ * 커밋 훅이 늦게 도착해도 이전 값으로 되돌아가지 않는다.
+ *
+ * track() 을 거치지 않은 쓰기, 롤백된 savepoint(NESTED) 안의 변경은 다시 읽어야 맞춰진다.
+ * 그래서 마지막 전체 로딩으로부터 maxStaleness 가 지난 스냅샷은 돌려주지 않고 그 자리에서 다시 읽는다.
+ * startRefresh 로 주기적으로 다시 읽어 두면 조회가 로딩을 기다릴 일은 거의 없다.
+ *
+ * 버전은 불변 해시 트라이(PersistentMap)라서 발행은 바뀐 회원의 경로만 복사한다. (전체 맵 복사 없음)
+ * publishLock 안에서 하는 일은 변경 수 x O(log32 n) 이다.
+ */
+@Slf4j
+public class BalanceSnapshotService {
+
+    private static final String LOAD_SQL = "select member_id, money from member";
+
+    private final JdbcTemplate template;
+    private final long maxStalenessNanos;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentSkipListSet<Long> inflight = new ConcurrentSkipListSet<>();
+    private final Object sequenceLock = new Object();
+    private final Object publishLock = new Object();
+    private final Object reloadLock = new Object();
+
+    private volatile BalanceSnapshot snapshot;
+    //전체 로딩 중에 발행된 변경 - 로딩 결과에 다시 적용한다. (publishLock)
+    private List<Change> replay;
+
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong publishes = new AtomicLong();
+    private ScheduledExecutorService refresher;
+
+    public BalanceSnapshotService(DataSource dataSource, Duration maxStaleness) {
+        this.template = new JdbcTemplate(dataSource);
+        this.maxStalenessNanos = maxStaleness.toNanos();
+    }
+
+    /**
+     * 현재 스냅샷 - 처음이거나 maxStaleness 를 넘었으면 다시 읽는다.
+     */
+    public BalanceSnapshot current() {
+        BalanceSnapshot current = snapshot;
+        if (current == null || current.getAgeNanos() > maxStalenessNanos) {
+            return refreshIfStale();
+        }
+        return current;
+    }
+
+    private BalanceSnapshot refreshIfStale() {
+        synchronized (reloadLock) {
+            BalanceSnapshot current = snapshot;
+            if (current != null && current.getAgeNanos() <= maxStalenessNanos) {
+                return current;
+            }
+            return refresh();
+        }
+    }
+
+    /**
+     * member 테이블 전체를 다시 읽는다.
+     * 읽는 동안에도 커밋 훅은 막히지 않고, 그 사이 발행된 변경은 로딩 결과에 다시 적용한다.
+     */
+    public BalanceSnapshot refresh() {
+        synchronized (reloadLock) {
+            long stamp;
+            BalanceSnapshot base;
+            synchronized (publishLock) {
+                replay = new ArrayList<>();
+                base = snapshot;
+                //아직 커밋되지 않은 변경은 로딩 결과보다 새 값으로 취급
+                synchronized (sequenceLock) {
+                    stamp = inflight.isEmpty() ? sequence.get() : inflight.first() - 1;
+                }
+            }
+
+            long loadedAt = System.nanoTime();
+            Map<String, Entry> loaded = new HashMap<>();
+            try {
+                template.query(LOAD_SQL, rs -> {
+                    MemberValue value = MemberValue.from(rs);
+                    loaded.put(value.getMemberId(), new Entry(value, stamp));
+                });
+            } catch (RuntimeException e) {
+                synchronized (publishLock) {
+                    replay = null;
+                }
+                throw e;
+            }
+
+            synchronized (publishLock) {
+                //로딩 전에 반영된 변경은 로딩 결과에 이미 들어 있다. 순번만 이어받아 늦게 온 이전 변경을 막는다.
+                //삭제 표시도 순번과 함께 옮긴다. (stamp 이하는 모두 끝난 변경이라 버려도 된다)
+                if (base != null) {
+                    base.entries().forEach((id, entry) -> {
+                        Entry current = loaded.get(id);
+                        if (current != null && entry.seq > current.seq) {
+                            loaded.put(id, new Entry(current.value, entry.seq));
+                        } else if (current == null && entry.value == null && entry.seq > stamp) {
+                            loaded.put(id, entry);
+                        }
+                    });
+                }
+                Draft draft = new Draft(loaded);
+                replay.forEach(draft::apply);
+                replay = null;
+
+                long version = snapshot != null ? snapshot.getVersion() + 1 : 1;
+                BalanceSnapshot refreshed = draft.build(version, loadedAt);
+                snapshot = refreshed;
+                reloads.incrementAndGet();
+                log.debug("balance snapshot reloaded version={} size={}", version, refreshed.size());
+                return refreshed;
+            }
+        }
+    }
+
+    /**
+     * 주기적으로 refresh 실행
+     */
+    public synchronized void startRefresh(Duration interval) {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "balance-snapshot-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("balance snapshot refresh failed", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    /**
+     * 쓰기를 스냅샷에 반영하는 MemberRepository 로 감싼다.
+     */
+    public MemberRepository track(MemberRepository target) {
+        return new TrackingMemberRepository(target);
+    }
+
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    public long getPublishes() {
+        return publishes.get();
+    }
+
+    private void record(String memberId, MemberValue value) {
+        long seq;
+        synchronized (sequenceLock) {
+            seq = sequence.incrementAndGet();
+            inflight.add(seq);
+        }
+        Change change = new Change(memberId, value, seq);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                publish(List.of(change));
+            } finally {
+                inflight.remove(seq);
+            }
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    private void publish(List<Change> changes) {
+        synchronized (publishLock) {
+            if (replay != null) {
+                replay.addAll(changes);
+            }
+            BalanceSnapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            Draft draft = new Draft(current.entries(), current.size(), current.getTotalMoney());
+            changes.forEach(draft::apply);
+            snapshot = draft.build(current.getVersion() + 1, current.getLoadedAt());
+            publishes.incrementAndGet();
+        }
+    }
+
+    private static class Change {
+        private final String memberId;
+        private final MemberValue value;
+        private final long seq;
+
+        private Change(String memberId, MemberValue value, long seq) {
+            this.memberId = memberId;
+            this.value = value;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * 다음 버전을 만드는 중인 맵 - size/totalMoney 를 함께 맞춘다.
+     */
+    private static class Draft {
+        private PersistentMap<String, Entry> entries;
+        private int size;
+        private long totalMoney;
+
+        private Draft(Map<String, Entry> loaded) {
+            this.entries = PersistentMap.of(loaded);
+            for (Entry entry : loaded.values()) {
+                if (entry.value != null) {
+                    size++;
+                    totalMoney += entry.value.getMoney();
+                }
+            }
+        }
+
+        private Draft(PersistentMap<String, Entry> entries, int size, long totalMoney) {
+            this.entries = entries;
+            this.size = size;
+            this.totalMoney = totalMoney;
+        }
+
+        private void apply(Change change) {
+            Entry old = entries.get(change.memberId);
+            if (old != null && old.seq >= change.seq) {
+                return;
+            }
+            entries = entries.put(change.memberId, new Entry(change.value, change.seq));
+            if (old != null && old.value != null) {
+                size--;
+                totalMoney -= old.value.getMoney();
+            }
+            if (change.value != null) {
+                size++;
+                totalMoney += change.value.getMoney();
+            }
+        }
+
+        private BalanceSnapshot build(long version, long loadedAt) {
+            return new BalanceSnapshot(version, loadedAt, entries, size, totalMoney);
+        }
+    }
+
+    /**
+     * 트랜잭션 하나의 변경 모음 - 커밋되면 한 버전으로 발행
+     */
+    private class PendingChanges implements TransactionSynchronization {
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(BalanceSnapshotService.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(BalanceSnapshotService.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            publish(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(BalanceSnapshotService.this);
+            changes.forEach(change -> inflight.remove(change.seq));
+        }
+    }
+
+    private class TrackingMemberRepository implements MemberRepository {
+        private final MemberRepository target;
+
+        private TrackingMemberRepository(MemberRepository target) {
+            this.target = target;
+        }
+
+        @Override
+        public Member save(Member member) {
+            Member saved = target.save(member);
+            record(saved.getMemberId(), MemberValue.from(saved));
+            return saved;
+        }
+
+        @Override
+        public Member findById(String memberId) {
+            return target.findById(memberId);
+        }
+
+        /**
+         * 바뀐 행이 있을 때만 기록한다. (없는 회원을 스냅샷에 만들지 않도록)
+         */
+        @Override
+        public void update(String memberId, int money) {
+            Member member;
+            try {
+                member = target.updateReturning(memberId, money);
+            } catch (EmptyResultDataAccessException | MemberNotFoundException e) {
+                return;
+            }
+            if (member != null) {
+                record(memberId, MemberValue.from(member));
+            }
+        }
+
+        @Override
+        public void delete(String memberId) {
+            target.delete(memberId);
+            record(memberId, null);
+        }
+
+        @Override
+        public Member updateReturning(String memberId, int money) {
+            Member member = target.updateReturning(memberId, money);
+            record(memberId, MemberValue.from(member));
+            return member;
+        }
+
+        @Override
+        public Member addMoneyReturning(String memberId, int delta) {
+            Member member = target.addMoneyReturning(memberId, delta);
+            record(memberId, MemberValue.from(member));
+            return member;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.ex.MyOverloadException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * AIMD 동시성 한도
+ * - 응답 시간이 최소 응답 시간 * tolerance 이하이고 한도 가까이 쓰고 있으면 한도 + 1/limit (additive increase)
+ * - 응답 시간이 그보다 느려지면 한도 * backoff (multiplicative decrease)
+ *   마지막 감소 이후에 시작한 요청만 다시 줄일 수 있다. (느린 응답이 한꺼번에 와도 RTT 당 한 번)
+ * - 최소 응답 시간은 minLatencyWindow 단위의 이동 최소값이다. (운 좋은 한 번의 측정이 계속 기준이 되지 않도록)
+ * 한도를 넘는 요청은 대기하지 않고 MyOverloadException 으로 즉시 거절한다.
+ * 대기 큐가 없으므로 커넥션 풀 앞에 요청이 쌓이지 않는다.
+ */
+public class ConcurrencyLimiter {
+
+    public static final Duration DEFAULT_MIN_LATENCY_WINDOW = Duration.ofSeconds(10);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+    private final long minLatencyWindowNanos;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Map<RequestPriority, AtomicLong> accepted = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, AtomicLong> rejected = new EnumMap<>(RequestPriority.class);
+
+    //double 한도를 비트로 보관 (CAS 로 갱신)
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecreaseNanos;
+    //이번 창 / 이전 창의 최소 응답 시간
+    private final AtomicLong windowStartNanos;
+    private final AtomicLong currentMinLatency = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong previousMinLatency = new AtomicLong(Long.MAX_VALUE);
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoff) {
+        this(initialLimit, minLimit, maxLimit, tolerance, backoff, DEFAULT_MIN_LATENCY_WINDOW);
+    }
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoff,
+                              Duration minLatencyWindow) {
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.minLatencyWindowNanos = minLatencyWindow.toNanos();
+        long now = System.nanoTime();
+        this.lastDecreaseNanos = new AtomicLong(now);
+        this.windowStartNanos = new AtomicLong(now);
+        for (RequestPriority priority : RequestPriority.values()) {
+            accepted.put(priority, new AtomicLong());
+            rejected.put(priority, new AtomicLong());
+        }
+    }
+
+    public <T> T execute(RequestPriority priority, Supplier<T> action) {
+        acquire(priority);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = action.get();
+            success = true;
+            return result;
+        } finally {
+            release(start, System.nanoTime(), success);
+        }
+    }
+
+    public void run(RequestPriority priority, Runnable action) {
+        execute(priority, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void acquire(RequestPriority priority) {
+        int allowed = Math.max(1, (int) (getLimit() * priority.getShare()));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                rejected.get(priority).incrementAndGet();
+                throw new MyOverloadException("overloaded priority=" + priority + " inflight=" + current + " allowed=" + allowed);
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                accepted.get(priority).incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 실패한 요청은 한도 계산에 쓰지 않는다. (업무 예외는 DB 지연 신호가 아니다)
+     */
+    private void release(long start, long end, boolean success) {
+        int current = inflight.getAndDecrement();
+        if (!success) {
+            return;
+        }
+        long latencyNanos = end - start;
+        long minLatencyNanos = recordLatency(end, latencyNanos);
+        if (latencyNanos > minLatencyNanos * tolerance) {
+            long lastDecrease = lastDecreaseNanos.get();
+            //이미 줄어든 한도에서 시작한 요청이 아니면 무시
+            if (start - lastDecrease >= 0 && lastDecreaseNanos.compareAndSet(lastDecrease, end)) {
+                updateLimit(limit -> Math.max(minLimit, limit * backoff));
+            }
+        } else if (current >= limit() * 0.9) {
+            updateLimit(limit -> Math.min(maxLimit, limit + 1.0 / limit));
+        }
+    }
+
+    /**
+     * @return 최근 1~2개 창의 최소 응답 시간
+     */
+    private long recordLatency(long now, long latencyNanos) {
+        long windowStart = windowStartNanos.get();
+        long elapsed = now - windowStart;
+        if (elapsed >= minLatencyWindowNanos && windowStartNanos.compareAndSet(windowStart, now)) {
+            //창이 두 개 이상 지났으면 이전 창도 버린다
+            previousMinLatency.set(elapsed >= 2 * minLatencyWindowNanos ? Long.MAX_VALUE : currentMinLatency.get());
+            currentMinLatency.set(Long.MAX_VALUE);
+        }
+        long currentMin = currentMinLatency.accumulateAndGet(latencyNanos, Math::min);
+        return Math.min(currentMin, previousMinLatency.get());
+    }
+
+    private void updateLimit(DoubleUnaryOperator function) {
+        limitBits.updateAndGet(bits -> Double.doubleToLongBits(function.applyAsDouble(Double.longBitsToDouble(bits))));
+    }
+
+    private double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    public int getLimit() {
+        return (int) limit();
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getAccepted(RequestPriority priority) {
+        return accepted.get(priority).get();
+    }
+
+    public long getRejected(RequestPriority priority) {
+        return rejected.get(priority).get();
+    }
+
+    /**
+     * 오래된 최소 응답 시간을 버리고 다시 측정한다. (DB 변경 등으로 기준이 바뀌었을 때)
+     */
+    public void resetMinLatency() {
+        previousMinLatency.set(Long.MAX_VALUE);
+        currentMinLatency.set(Long.MAX_VALUE);
+        windowStartNanos.set(System.nanoTime());
+    }
+}
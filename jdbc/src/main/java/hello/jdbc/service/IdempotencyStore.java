@@ -0,0 +1,128 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.IdempotencyKeyRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 이체 멱등성 키 중복 확인
+ * 1. 최근 커밋된 키 LRU 캐시에 있으면 중복 (DB 조회 없음)
+ * 2. 블룸 필터에 없으면 새 키 (DB 조회 없음) - 대부분의 요청
+ * 3. 그 외에만 DB 조회
+ * 키 기록(record)은 이체와 같은 트랜잭션에서 insert 하고, 커밋 후에 LRU 에 넣는다.
+ * 오래된 키는 compact(ttl) 로 삭제하고 블룸 필터를 다시 만든다.
+ */
+@Slf4j
+public class IdempotencyStore {
+
+    private final IdempotencyKeyRepository repository;
+    private final long expectedKeys;
+    private final double falsePositiveRate;
+    private final Map<String, Boolean> recentKeys;
+    private volatile BloomFilter bloomFilter;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong bloomSkips = new AtomicLong();
+    private final AtomicLong dbLookups = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+
+    public IdempotencyStore(IdempotencyKeyRepository repository, int cacheSize, long expectedKeys, double falsePositiveRate) {
+        this.repository = repository;
+        this.expectedKeys = expectedKeys;
+        this.falsePositiveRate = falsePositiveRate;
+        this.recentKeys = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(cacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.bloomFilter = loadBloomFilter();
+    }
+
+    public boolean isDuplicate(String key) {
+        long start = System.nanoTime();
+        try {
+            lookups.incrementAndGet();
+            if (recentKeys.containsKey(key)) {
+                cacheHits.incrementAndGet();
+                return true;
+            }
+            if (!bloomFilter.mightContain(key)) {
+                bloomSkips.incrementAndGet();
+                return false;
+            }
+            dbLookups.incrementAndGet();
+            return repository.exists(key);
+        } finally {
+            lookupNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 현재 트랜잭션에서 키를 기록한다. 이미 있으면 DuplicateKeyException
+     */
+    public void record(String key) {
+        repository.insert(key);
+        bloomFilter.add(key); //롤백되더라도 블룸 필터에는 오탐으로만 남는다.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentKeys.put(key, Boolean.TRUE);
+                }
+            });
+        } else {
+            recentKeys.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * ttl 보다 오래된 키 삭제 후 블룸 필터 재생성
+     * @return 삭제한 키 수
+     */
+    public int compact(Duration ttl) {
+        int deleted = repository.deleteOlderThan(Instant.now().minus(ttl));
+        recentKeys.clear();
+        bloomFilter = loadBloomFilter();
+        log.info("idempotency keys compacted deleted={}", deleted);
+        return deleted;
+    }
+
+    private BloomFilter loadBloomFilter() {
+        BloomFilter filter = new BloomFilter(expectedKeys, falsePositiveRate);
+        repository.forEachKey(filter::add);
+        return filter;
+    }
+
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getBloomSkips() {
+        return bloomSkips.get();
+    }
+
+    public long getDbLookups() {
+        return dbLookups.get();
+    }
+
+    /**
+     * 이체 한 건당 중복 확인에 쓴 평균 시간 (ns)
+     */
+    public long getAverageLookupNanos() {
+        long count = lookups.get();
+        return count == 0 ? 0 : lookupNanos.get() / count;
+    }
+}
@@ -0,0 +1,39 @@
+package hello.jdbc.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 멱등성 키 계좌이체
+ * 타임아웃 후 재시도해도 같은 키의 이체는 한 번만 실행된다.
+ * 키 기록과 이체가 같은 트랜잭션이므로 이체가 실패(롤백)하면 같은 키로 다시 시도할 수 있다.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotentMemberService {
+
+    private final IdempotencyStore idempotencyStore;
+    private final MemberServiceV4 memberService;
+
+    /**
+     * @return 실행했으면 true, 이미 처리된 키면 false
+     */
+    @Transactional
+    public boolean accountTransfer(String idempotencyKey, String fromId, String toId, int money) {
+        if (idempotencyStore.isDuplicate(idempotencyKey)) {
+            log.info("duplicate transfer ignored key={}", idempotencyKey);
+            return false;
+        }
+        try {
+            idempotencyStore.record(idempotencyKey);
+        } catch (DuplicateKeyException e) {
+            //같은 키로 동시에 들어온 요청이 먼저 커밋함
+            log.info("concurrent duplicate transfer ignored key={}", idempotencyKey);
+            return false;
+        }
+        memberService.accountTransfer(fromId, toId, money);
+        return true;
+    }
+}
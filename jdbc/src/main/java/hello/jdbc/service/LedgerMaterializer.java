@@ -0,0 +1,126 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.LedgerEntry;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.TransferLedgerRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 원장 -> member.money 반영 (비동기)
+ * 한 트랜잭션에서 체크포인트 락 -> seq > last_seq 원장 batchSize 건 조회 -> 회원별 합산 후 배치 반영
+ * -> 체크포인트 갱신 (원장 로우는 건드리지 않는다)
+ *
+ * seq 는 커밋 순서대로 보이지 않는다. 빈자리(아직 커밋 전이거나 롤백된 seq) 앞까지만 반영하고 체크포인트를 올린다.
+ * 빈자리가 gapTimeout 동안 채워지지 않으면 롤백된 것으로 보고 건너뛴다.
+ * 그래서 원장 트랜잭션은 gapTimeout 보다 먼저 끝나야 한다. (더 늦게 커밋된 원장은 반영되지 않는다)
+ */
+@Slf4j
+public class LedgerMaterializer implements AutoCloseable {
+
+    private final TransferLedgerRepository ledgerRepository;
+    private final MemberRepositoryV5 memberRepository;
+    private final TransactionTemplate txTemplate;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    //처음 본 빈자리와 그 시각 (gapExpired 에서만 읽고 쓴다)
+    private long gapSeq = -1;
+    private long gapSince;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ledger-materializer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LedgerMaterializer(TransferLedgerRepository ledgerRepository, MemberRepositoryV5 memberRepository,
+                              PlatformTransactionManager transactionManager, int batchSize) {
+        this(ledgerRepository, memberRepository, transactionManager, batchSize, Duration.ofSeconds(30));
+    }
+
+    public LedgerMaterializer(TransferLedgerRepository ledgerRepository, MemberRepositoryV5 memberRepository,
+                              PlatformTransactionManager transactionManager, int batchSize, Duration gapTimeout) {
+        this.ledgerRepository = ledgerRepository;
+        this.memberRepository = memberRepository;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+    }
+
+    public void start(Duration interval) {
+        scheduler.scheduleWithFixedDelay(this::drain, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 미반영 원장이 없을 때까지 반영
+     * @return 반영한 원장 수
+     */
+    public long drain() {
+        long total = 0;
+        try {
+            int applied;
+            do {
+                applied = materializeOnce();
+                total += applied;
+            } while (applied > 0);
+        } catch (RuntimeException e) {
+            log.error("ledger materialize failed", e); //다음 주기에 다시 시도
+        }
+        return total;
+    }
+
+    public int materializeOnce() {
+        Integer applied = txTemplate.execute(status -> {
+            long checkpoint = ledgerRepository.lockCheckpoint();
+            List<LedgerEntry> entries = ledgerRepository.findAfter(checkpoint, batchSize);
+
+            SortedMap<String, Integer> deltas = new TreeMap<>();
+            long lastSeq = checkpoint;
+            int count = 0;
+            for (LedgerEntry entry : entries) {
+                if (entry.getSeq() != lastSeq + 1 && !gapExpired(lastSeq + 1)) {
+                    break;
+                }
+                deltas.merge(entry.getMemberId(), entry.getDelta(), Integer::sum);
+                lastSeq = entry.getSeq();
+                count++;
+            }
+            if (count == 0) {
+                return 0;
+            }
+            memberRepository.addMoneyBatch(deltas);
+            ledgerRepository.updateCheckpoint(lastSeq);
+            log.debug("materialized entries={}, members={}, checkpoint={}", count, deltas.size(), lastSeq);
+            return count;
+        });
+        return applied == null ? 0 : applied;
+    }
+
+    /**
+     * missingSeq 가 gapTimeout 넘게 비어 있었으면 true (롤백된 seq 로 본다)
+     */
+    private synchronized boolean gapExpired(long missingSeq) {
+        long now = System.nanoTime();
+        if (gapSeq != missingSeq) {
+            gapSeq = missingSeq;
+            gapSince = now;
+        }
+        if (now - gapSince < gapTimeoutNanos) {
+            return false;
+        }
+        log.info("ledger gap skipped seq={}", missingSeq);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+}
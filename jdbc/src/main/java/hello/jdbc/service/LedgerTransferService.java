@@ -0,0 +1,42 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.LedgerEntry;
+import hello.jdbc.repository.TransferLedgerRepository;
+import java.util.List;
+import java.util.NoSuchElementException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 원장 기반 계좌이체
+ * member 로우를 갱신하지 않고 출금/입금 원장 두 건을 한 배치로 추가만 한다. -> 로우 락 경합 없음
+ * 잔액 조회는 반영된 잔액 + 미반영 원장 합계
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LedgerTransferService {
+
+    private final TransferLedgerRepository ledgerRepository;
+
+    @Transactional
+    public void accountTransfer(String fromId, String toId, int money) {
+        int expected = fromId.equals(toId) ? 1 : 2;
+        if (ledgerRepository.countMembers(fromId, toId) != expected) {
+            throw new NoSuchElementException("member not found fromId=" + fromId + ", toId=" + toId);
+        }
+        validation(toId);
+        ledgerRepository.appendAll(List.of(new LedgerEntry(fromId, -money), new LedgerEntry(toId, money)));
+    }
+
+    @Transactional(readOnly = true)
+    public int findBalance(String memberId) {
+        return ledgerRepository.findBalance(memberId);
+    }
+
+    private static void validation(String toId) {
+        if (toId.equals("ex")){
+            throw new IllegalStateException("이체 중 예외 발생");
+        }
+    }
+}
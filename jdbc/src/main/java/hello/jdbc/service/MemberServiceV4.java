@@ -24,17 +24,29 @@ public class MemberServiceV4 {
         bizLogic(fromId, toId, money);
     }
 
+    /**
+     * 이체 후 두 회원의 잔액을 함께 반환한다.
+     * MemberRepositoryV5 기준 출금/입금 각 1문장, 총 2문장
+     */
+    @Transactional
+    public TransferBalances accountTransferReturning(String fromId, String toId, int money) {
+        Member fromMember = memberRepository.addMoneyReturning(fromId, -money);
+        validation(toId);
+        Member toMember = memberRepository.addMoneyReturning(toId, money);
+        return new TransferBalances(fromMember, toMember);
+    }
+
     private void bizLogic(String fromId, String toId, int money) {
         Member fromMember = memberRepository.findById(fromId);
         Member toMember = memberRepository.findById(toId);
 
         memberRepository.update(fromId, fromMember.getMoney() - money);
-        validation(toMember);
+        validation(toMember.getMemberId());
         memberRepository.update(toId, toMember.getMoney() + money);
     }
 
-    private static void validation(Member toMember) {
-        if (toMember.getMemberId().equals("ex")){
+    private static void validation(String toId) {
+        if (toId.equals("ex")){
             throw new IllegalStateException("이체 중 예외 발생");
         }
     }
@@ -0,0 +1,136 @@
+package hello.jdbc.service;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 불변 해시 트라이 (32갈래, 경로 복사)
+ * put 은 원본을 그대로 두고 바뀐 경로(최대 7단계)의 노드만 복사한 새 맵을 돌려준다.
+ * 그래서 스냅샷 버전을 하나 더 만드는 비용이 전체 크기와 관계없이 O(log32 n) 이다.
+ * 해시가 완전히 같은 키는 잎 노드에 사슬로 이어 붙인다. 값은 null 이면 안 된다. (없음과 구분하지 않는다)
+ */
+final class PersistentMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final Object[] root;
+
+    private PersistentMap(Object[] root) {
+        this.root = root;
+    }
+
+    /**
+     * 처음 만드는 트라이는 공유되지 않으므로 노드를 복사하지 않고 채운다.
+     */
+    static <K, V> PersistentMap<K, V> of(Map<K, V> source) {
+        Object[] root = new Object[WIDTH];
+        source.forEach((key, value) -> put(root, 0, hash(key), key, value, false));
+        return new PersistentMap<>(root);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        int hash = hash(key);
+        Object[] node = root;
+        for (int shift = 0; ; shift += BITS) {
+            Object child = node[(hash >>> shift) & MASK];
+            if (child == null) {
+                return null;
+            }
+            if (child instanceof Leaf leaf) {
+                return (V) leaf.find(key);
+            }
+            node = (Object[]) child;
+        }
+    }
+
+    boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    PersistentMap<K, V> put(K key, V value) {
+        return new PersistentMap<>(put(root, 0, hash(key), key, value, true));
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(root, (BiConsumer<Object, Object>) action);
+    }
+
+    private static Object[] put(Object[] node, int shift, int hash, Object key, Object value, boolean copy) {
+        Object[] target = copy ? node.clone() : node;
+        int index = (hash >>> shift) & MASK;
+        Object child = node[index];
+        if (child == null) {
+            target[index] = new Leaf(hash, key, value, null);
+        } else if (child instanceof Leaf leaf) {
+            if (leaf.hash == hash) {
+                target[index] = leaf.with(key, value);
+            } else {
+                //해시가 다르면 다음 단계에서 갈라진다
+                Object[] branch = new Object[WIDTH];
+                branch[(leaf.hash >>> (shift + BITS)) & MASK] = leaf;
+                target[index] = put(branch, shift + BITS, hash, key, value, false);
+            }
+        } else {
+            target[index] = put((Object[]) child, shift + BITS, hash, key, value, copy);
+        }
+        return target;
+    }
+
+    private static void forEach(Object[] node, BiConsumer<Object, Object> action) {
+        for (Object child : node) {
+            if (child instanceof Leaf leaf) {
+                for (Leaf l = leaf; l != null; l = l.next) {
+                    action.accept(l.key, l.value);
+                }
+            } else if (child != null) {
+                forEach((Object[]) child, action);
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Leaf {
+        private final int hash;
+        private final Object key;
+        private final Object value;
+        private final Leaf next;
+
+        private Leaf(int hash, Object key, Object value, Leaf next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        private Object find(Object key) {
+            for (Leaf leaf = this; leaf != null; leaf = leaf.next) {
+                if (leaf.key.equals(key)) {
+                    return leaf.value;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 같은 키가 있으면 그 자리만 바꾼 사슬, 없으면 앞에 붙인 사슬
+         */
+        private Leaf with(Object key, Object value) {
+            return find(key) == null ? new Leaf(hash, key, value, this) : replace(key, value);
+        }
+
+        private Leaf replace(Object key, Object value) {
+            if (this.key.equals(key)) {
+                return new Leaf(hash, key, value, next);
+            }
+            return new Leaf(hash, this.key, this.value, next.replace(key, value));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.TransferStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+/**
+ * 저장 함수 호출 한 번으로 이체 - 왕복 1회
+ * 실패 시 DB 는 아무것도 변경하지 않으므로 별도 트랜잭션 없이 autocommit 으로 실행한다.
+ * 예외는 MemberServiceV4 와 같게 맞춘다.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ProcedureTransferService {
+
+    private final MemberRepositoryV5 memberRepository;
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        TransferStatus status = memberRepository.transferByCall(fromId, toId, money);
+        switch (status) {
+            case OK:
+                return;
+            case MEMBER_NOT_FOUND:
+                throw new EmptyResultDataAccessException("member not found fromId=" + fromId + " toId=" + toId, 1);
+            case INSUFFICIENT_FUNDS:
+                throw new IllegalStateException("잔액 부족 fromId=" + fromId);
+            default:
+                throw new IllegalStateException("이체 중 예외 발생");
+        }
+    }
+}
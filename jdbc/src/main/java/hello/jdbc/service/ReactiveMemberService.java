@@ -0,0 +1,41 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.ReactiveMemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * MemberServiceV4 의 리액티브 버전
+ * TransactionalOperator 로 구독 단위 트랜잭션 - 에러 신호가 나오면 롤백
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveMemberService {
+
+    private final ReactiveMemberRepository memberRepository;
+    private final TransactionalOperator transactionalOperator;
+
+    public Mono<Void> accountTransfer(String fromId, String toId, int money) {
+        return bizLogic(fromId, toId, money)
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * 트랜잭션 안에서는 커넥션 하나를 같이 쓰므로 조회도 순서대로 실행한다.
+     */
+    private Mono<Void> bizLogic(String fromId, String toId, int money) {
+        return memberRepository.findById(fromId)
+                .flatMap(fromMember -> memberRepository.findById(toId)
+                        .flatMap(toMember -> memberRepository.update(fromId, fromMember.getMoney() - money)
+                                .then(Mono.fromRunnable(() -> validation(toMember.getMemberId())))
+                                .then(memberRepository.update(toId, toMember.getMoney() + money))));
+    }
+
+    private static void validation(String toId) {
+        if (toId.equals("ex")) {
+            throw new IllegalStateException("이체 중 예외 발생");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package hello.jdbc.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 부하 차단 우선순위 - share 는 전체 한도 중 이 등급이 쓸 수 있는 비율
+ * 한도가 차면 share 가 작은 조회부터 거절된다.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum RequestPriority {
+    READ(0.7),
+    TRANSFER(1.0);
+
+    private final double share;
+}
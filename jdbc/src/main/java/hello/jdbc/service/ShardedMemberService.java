@@ -0,0 +1,134 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.shard.Shard;
+import hello.jdbc.repository.shard.ShardRebalancer;
+import hello.jdbc.repository.shard.ShardedMemberRepository;
+import hello.jdbc.repository.shard.TransferSaga;
+import hello.jdbc.repository.shard.TransferSagaRepository;
+import java.time.Duration;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 샤딩 환경의 계좌이체
+ * 같은 샤드면 해당 샤드의 로컬 트랜잭션 하나로 처리한다.
+ * 다른 샤드면 사가(saga)로 처리한다.
+ *   1. 출금 샤드 트랜잭션 - 사가 기록(DEBITED) + 출금 후 커밋
+ *   2. 입금 샤드 트랜잭션 - 입금 기록 + 입금 후 커밋 (입금 기록이 있으면 건너뛴다)
+ *   3. 2가 실패하면 출금 샤드에서 보상 트랜잭션(재입금 + COMPENSATED), 성공하면 COMPLETED
+ * 1 이후에 중단되면 사가 기록이 DEBITED 로 남으므로 resumeSagas() 로 이어서 처리한다.
+ * 주의! 1과 2 사이에는 출금만 된 중간 상태가 다른 트랜잭션에 보인다.
+ *
+ * 잔액은 money = money + ? 한 문장으로 바꾼다. (조회 후 update 하면 동시 이체에서 갱신이 사라진다)
+ * 샤드 리밸런싱 중에는 이체를 거절한다. (MyShardMigrationException - 재시도)
+ * 리밸런싱은 rebalancer() 로 한다. 끝나지 않은 사가가 있으면 확장을 거절하므로 resumeSagas() 로 먼저 정리한다.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ShardedMemberService {
+
+    private final ShardedMemberRepository memberRepository;
+    private final TransferSagaRepository sagaRepository = new TransferSagaRepository();
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        memberRepository.executeWithoutMigration(() -> {
+            transfer(fromId, toId, money);
+            return null;
+        });
+    }
+
+    /**
+     * 사가가 남아 있으면 확장을 거절하는 리밸런서
+     */
+    public ShardRebalancer rebalancer() {
+        return new ShardRebalancer(memberRepository, sagaRepository);
+    }
+
+    /**
+     * olderThan 보다 오래 DEBITED 로 남은 사가를 끝까지 진행하거나 보상한다.
+     * @return 정리한 사가 수
+     */
+    public int resumeSagas(Duration olderThan) {
+        return memberRepository.executeWithoutMigration(() -> {
+            int resumed = 0;
+            for (Shard fromShard : memberRepository.getShards()) {
+                for (TransferSaga saga : sagaRepository.findPending(fromShard, olderThan)) {
+                    try {
+                        complete(fromShard, saga);
+                    } catch (RuntimeException e) {
+                        log.warn("saga resumed with failure saga={}", saga, e);
+                    }
+                    resumed++;
+                }
+            }
+            return resumed;
+        });
+    }
+
+    private void transfer(String fromId, String toId, int money) {
+        Shard fromShard = memberRepository.shardFor(fromId);
+        Shard toShard = memberRepository.shardFor(toId);
+
+        if (fromShard == toShard) {
+            fromShard.getTxTemplate().executeWithoutResult(status -> {
+                fromShard.getRepository().addMoneyReturning(fromId, -money);
+                validation(toId);
+                fromShard.getRepository().addMoneyReturning(toId, money);
+            });
+            return;
+        }
+
+        TransferSaga saga = new TransferSaga(UUID.randomUUID().toString(), fromId, toId, toShard.getName(), money);
+        fromShard.getTxTemplate().executeWithoutResult(status -> {
+            sagaRepository.insert(fromShard, saga);
+            fromShard.getRepository().addMoneyReturning(fromId, -money);
+        });
+        complete(fromShard, saga);
+    }
+
+    /**
+     * 출금이 커밋된 사가를 입금 -> COMPLETED, 실패하면 보상 -> COMPENSATED 로 끝낸다.
+     */
+    private void complete(Shard fromShard, TransferSaga saga) {
+        Shard toShard = memberRepository.shardByName(saga.getToShard());
+        try {
+            toShard.getTxTemplate().executeWithoutResult(status -> {
+                if (sagaRepository.recordCredit(toShard, saga.getSagaId())) {
+                    validation(saga.getToId());
+                    toShard.getRepository().addMoneyReturning(saga.getToId(), saga.getMoney());
+                }
+            });
+        } catch (RuntimeException e) {
+            //커밋 응답만 유실된 경우 보상하면 돈이 두 번 들어간다
+            if (sagaRepository.isCredited(toShard, saga.getSagaId())) {
+                sagaRepository.transition(fromShard, saga.getSagaId(), TransferSagaRepository.DEBITED, TransferSagaRepository.COMPLETED);
+                return;
+            }
+            log.warn("cross shard transfer failed, compensate saga={}", saga);
+            try {
+                compensate(fromShard, saga);
+            } catch (RuntimeException compensationEx) {
+                log.error("compensation failed, saga stays {} saga={}", TransferSagaRepository.DEBITED, saga, compensationEx);
+                e.addSuppressed(compensationEx);
+            }
+            throw e;
+        }
+        sagaRepository.transition(fromShard, saga.getSagaId(), TransferSagaRepository.DEBITED, TransferSagaRepository.COMPLETED);
+    }
+
+    private void compensate(Shard fromShard, TransferSaga saga) {
+        fromShard.getTxTemplate().executeWithoutResult(status -> {
+            if (sagaRepository.transition(fromShard, saga.getSagaId(),
+                    TransferSagaRepository.DEBITED, TransferSagaRepository.COMPENSATED)) {
+                fromShard.getRepository().addMoneyReturning(saga.getFromId(), saga.getMoney());
+            }
+        });
+    }
+
+    private static void validation(String toId) {
+        if (toId.equals("ex")){
+            throw new IllegalStateException("이체 중 예외 발생");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package hello.jdbc.service;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 인기 계좌 이체 직렬화
+ * AccountLockManager 로 계좌 락을 먼저 잡고 MemberServiceV4 (@Transactional 프록시) 를 호출한다.
+ * 같은 계좌 이체는 DB 로우 락이 아니라 JVM 락에서 대기하므로 커넥션 풀을 소진하지 않는다.
+ * 주의! 같은 DB 를 쓰는 다른 JVM 과는 직렬화되지 않는다. 최종 정합성은 여전히 DB 트랜잭션이 보장한다.
+ */
+@RequiredArgsConstructor
+public class StripedLockMemberService {
+
+    private final AccountLockManager lockManager;
+    private final MemberServiceV4 memberService;
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        lockManager.runWithLocks(fromId, toId, () -> memberService.accountTransfer(fromId, toId, money));
+    }
+}
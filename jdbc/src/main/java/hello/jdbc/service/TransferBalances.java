@@ -0,0 +1,18 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 이체 직후 잔액
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TransferBalances {
+
+    private final Member fromMember;
+    private final Member toMember;
+}
@@ -0,0 +1,20 @@
+package hello.jdbc.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 비동기 이체 결과
+ * batchSize - 함께 커밋된 이체 수 (1이면 단건 트랜잭션으로 처리됨)
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TransferResult {
+
+    private final String fromId;
+    private final String toId;
+    private final int money;
+    private final int batchSize;
+}
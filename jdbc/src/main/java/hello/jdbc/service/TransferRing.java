@@ -0,0 +1,68 @@
+package hello.jdbc.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 다중 생산자 / 단일 소비자 링 버퍼 (disruptor 방식)
+ * 생산자는 CAS 로 시퀀스를 선점하고 슬롯에 기록한 뒤 published 에 시퀀스를 표시한다.
+ * 소비자는 자기 시퀀스가 표시된 슬롯만 순서대로 가져간다.
+ */
+final class TransferRing<T> {
+
+    private final Object[] entries;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong producerSequence = new AtomicLong();
+    private final AtomicLong consumerSequence = new AtomicLong();
+
+    TransferRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.entries = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return 링이 가득 차면 false
+     */
+    boolean offer(T entry) {
+        long sequence;
+        do {
+            sequence = producerSequence.get();
+            if (sequence - consumerSequence.get() >= entries.length) {
+                return false;
+            }
+        } while (!producerSequence.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        entries[index] = entry;
+        published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * 소비자 스레드 전용
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long sequence = consumerSequence.get();
+        int index = (int) (sequence & mask);
+        if (published.get(index) != sequence) {
+            return null;
+        }
+        T entry = (T) entries[index];
+        entries[index] = null;
+        consumerSequence.set(sequence + 1);
+        return entry;
+    }
+
+    boolean isEmpty() {
+        return producerSequence.get() == consumerSequence.get();
+    }
+}
@@ -0,0 +1,184 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.MemberRepositoryV5;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 그룹 커밋 이체 파이프라인
+ * submitTransfer() 는 링 버퍼에 넣고 바로 반환한다.
+ * 단일 writer 스레드가 링에서 최대 maxBatchSize 건 / maxLinger 동안 모은 이체를
+ * 회원별 증감분으로 합쳐서 하나의 트랜잭션, 하나의 배치로 반영하고 커밋 후 future 를 완료한다.
+ * 배치가 실패하면 (없는 회원 등) 해당 배치를 건별 트랜잭션으로 다시 처리해서 실패한 이체만 실패시킨다.
+ */
+@Slf4j
+public class TransferSequencer implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    private final MemberRepositoryV5 memberRepository;
+    private final TransactionTemplate txTemplate;
+    private final TransferRing<PendingTransfer> ring;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public TransferSequencer(MemberRepositoryV5 memberRepository, PlatformTransactionManager transactionManager,
+                             int capacity, int maxBatchSize, Duration maxLinger) {
+        this.memberRepository = memberRepository;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.ring = new TransferRing<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.writer = new Thread(this::run, "transfer-sequencer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public CompletableFuture<TransferResult> submitTransfer(String fromId, String toId, int money) {
+        PendingTransfer transfer = new PendingTransfer(fromId, toId, money);
+        if (!running) {
+            transfer.future.completeExceptionally(new RejectedExecutionException("sequencer closed"));
+        } else if (!ring.offer(transfer)) {
+            transfer.future.completeExceptionally(new RejectedExecutionException("transfer queue full"));
+        } else if (running) {
+            LockSupport.unpark(writer);
+        } else {
+            //close() 와 경합 - writer 가 이미 링을 비우고 끝났을 수 있으므로 끝나기를 기다렸다가 남은 이체를 정리
+            awaitWriter();
+            rejectRemaining();
+        }
+        return transfer.future;
+    }
+
+    /**
+     * 링에 남은 이체까지 반영한 뒤 writer 를 멈춘다. 그 뒤에 들어온 이체는 거절된다.
+     */
+    @Override
+    public void close() {
+        running = false;
+        awaitWriter();
+        rejectRemaining();
+    }
+
+    private void awaitWriter() {
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * writer 가 끝난 뒤에만 호출한다. (링의 소비자는 한 번에 하나)
+     */
+    private synchronized void rejectRemaining() {
+        PendingTransfer transfer;
+        while ((transfer = ring.poll()) != null) {
+            transfer.future.completeExceptionally(new RejectedExecutionException("sequencer closed"));
+        }
+    }
+
+    private void run() {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+        while (running || !ring.isEmpty()) {
+            PendingTransfer first = ring.poll();
+            if (first == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + maxLingerNanos;
+            while (batch.size() < maxBatchSize) {
+                PendingTransfer next = ring.poll();
+                if (next != null) {
+                    batch.add(next);
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                //submitTransfer 의 unpark 로 바로 깨어난다
+                LockSupport.parkNanos(remaining);
+            }
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<PendingTransfer> batch) {
+        List<PendingTransfer> valid = new ArrayList<>(batch.size());
+        SortedMap<String, Integer> deltas = new TreeMap<>();
+        for (PendingTransfer transfer : batch) {
+            if (transfer.toId.equals("ex")) {
+                transfer.future.completeExceptionally(new IllegalStateException("이체 중 예외 발생"));
+                continue;
+            }
+            valid.add(transfer);
+            deltas.merge(transfer.fromId, -transfer.money, Integer::sum);
+            deltas.merge(transfer.toId, transfer.money, Integer::sum);
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        try {
+            txTemplate.executeWithoutResult(status -> checkUpdated(memberRepository.addMoneyBatch(deltas)));
+        } catch (RuntimeException e) {
+            log.warn("batch of {} failed, retry one by one", valid.size(), e);
+            for (PendingTransfer transfer : valid) {
+                applyOne(transfer);
+            }
+            return;
+        }
+        for (PendingTransfer transfer : valid) {
+            transfer.future.complete(new TransferResult(transfer.fromId, transfer.toId, transfer.money, valid.size()));
+        }
+    }
+
+    private void applyOne(PendingTransfer transfer) {
+        SortedMap<String, Integer> deltas = new TreeMap<>();
+        deltas.put(transfer.fromId, -transfer.money);
+        deltas.merge(transfer.toId, transfer.money, Integer::sum);
+        try {
+            txTemplate.executeWithoutResult(status -> checkUpdated(memberRepository.addMoneyBatch(deltas)));
+            transfer.future.complete(new TransferResult(transfer.fromId, transfer.toId, transfer.money, 1));
+        } catch (RuntimeException e) {
+            transfer.future.completeExceptionally(e);
+        }
+    }
+
+    private static void checkUpdated(int[] updateCounts) {
+        for (int count : updateCounts) {
+            if (count == 0) {
+                throw new NoSuchElementException("member not found");
+            }
+        }
+    }
+
+    private static final class PendingTransfer {
+        private final String fromId;
+        private final String toId;
+        private final int money;
+        private final CompletableFuture<TransferResult> future = new CompletableFuture<>();
+
+        private PendingTransfer(String fromId, String toId, int money) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.money = money;
+        }
+    }
+}
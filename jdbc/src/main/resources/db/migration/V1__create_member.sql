@@ -0,0 +1,6 @@
+-- 기존 DB 에는 이미 있을 수 있으므로 if not exists
+create table if not exists member (
+    member_id varchar(10) not null,
+    money integer not null default 0,
+    constraint pk_member primary key (member_id)
+);
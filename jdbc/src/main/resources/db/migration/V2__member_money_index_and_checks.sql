@@ -0,0 +1,5 @@
+-- 잔액 범위 조회용
+create index if not exists idx_member_money on member (money);
+
+alter table member add constraint if not exists ck_member_money check (money >= 0);
+alter table member add constraint if not exists ck_member_id check (char_length(member_id) > 0);
@@ -0,0 +1,11 @@
+-- db/migration V1 ~ V2 를 적용한 최종 상태 (임베디드 DB 빠른 부트스트랩용)
+-- 스키마를 바꿀 때는 새 마이그레이션을 추가하고 이 파일도 같이 맞춘다.
+-- 둘이 다르면 SchemaMigratorTest.schemaSqlMatchesMigrations 가 실패한다.
+create table if not exists member (
+    member_id varchar(10) not null,
+    money integer not null default 0,
+    constraint pk_member primary key (member_id),
+    constraint ck_member_money check (money >= 0),
+    constraint ck_member_id check (char_length(member_id) > 0)
+);
+create index if not exists idx_member_money on member (money);
@@ -0,0 +1,9 @@
+-- hot 계좌 표시 - 0 이면 일반 계좌, K 면 잔액을 member_balance_slot 의 K 개 슬롯에 나눠 저장
+alter table member add column if not exists balance_slots integer not null default 0;
+
+create table if not exists member_balance_slot (
+    member_id varchar(10) not null,
+    slot integer not null,
+    money integer not null default 0,
+    primary key (member_id, slot)
+);
@@ -0,0 +1,5 @@
+create table if not exists transfer_idempotency (
+    idempotency_key varchar(64) primary key,
+    created_at timestamp default current_timestamp not null
+);
+create index if not exists idx_transfer_idempotency_created on transfer_idempotency (created_at);
@@ -0,0 +1,14 @@
+create table if not exists transfer_ledger (
+    seq bigint generated by default as identity primary key,
+    member_id varchar(10) not null,
+    delta integer not null,
+    created_at timestamp default current_timestamp not null
+);
+create index if not exists idx_transfer_ledger_member on transfer_ledger (member_id, seq);
+
+create table if not exists ledger_checkpoint (
+    name varchar(30) primary key,
+    last_seq bigint not null
+);
+insert into ledger_checkpoint(name, last_seq)
+    select 'member', 0 where not exists (select 1 from ledger_checkpoint where name = 'member');
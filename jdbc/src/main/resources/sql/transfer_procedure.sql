@@ -0,0 +1 @@
+create alias if not exists member_transfer for 'hello.jdbc.repository.MemberTransferProcedure.transfer';
@@ -0,0 +1,15 @@
+create table if not exists transfer_saga (
+    saga_id varchar(36) primary key,
+    from_id varchar(10) not null,
+    to_id varchar(10) not null,
+    to_shard varchar(30) not null,
+    money integer not null,
+    status varchar(12) not null,
+    created_at timestamp default current_timestamp not null
+);
+create index if not exists idx_transfer_saga_status on transfer_saga (status, created_at);
+
+create table if not exists transfer_saga_credit (
+    saga_id varchar(36) primary key,
+    created_at timestamp default current_timestamp not null
+);
@@ -0,0 +1,109 @@
+package hello.jdbc.connection;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 부하 하네스 - 트랜잭션 안에서 sleep 으로 DB 작업 시간을 흉내낸다.
+ * 풀 크기(2 ~ 8)를 조절하는 것이 테스트 대상이라 공용 DataSource 대신 전용 HikariDataSource 를 만든다.
+ * DB 는 공용 URL (schema.sql) 을 그대로 쓴다.
+ */
+@Slf4j
+class AdaptivePoolSizerTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+
+    HikariDataSource pool;
+    InstrumentedDataSource dataSource;
+    AdaptivePoolSizer sizer;
+
+    @BeforeEach
+    void before() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(URL);
+        pool.setUsername(USERNAME);
+        pool.setPassword(PASSWORD);
+        pool.setMaximumPoolSize(2);
+        pool.setPoolName("adaptivePool");
+
+        dataSource = new InstrumentedDataSource(pool, Duration.ofSeconds(10), 0);
+        sizer = new AdaptivePoolSizer(dataSource, pool, 2, 8);
+    }
+
+    @AfterEach
+    void after() {
+        MemberRepositoryV5 memberRepository = new MemberRepositoryV5(pool);
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+        sizer.close();
+        dataSource.close();
+        pool.close();
+    }
+
+    @Test
+    void growUnderQueueingAndShrinkWhenIdle() throws Exception {
+        MemberRepositoryV5 memberRepository = new MemberRepositoryV5(dataSource);
+        MemberServiceV4 memberService = new MemberServiceV4(memberRepository);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        memberRepository.save(new Member(MEMBER_A, 1_000_000));
+        memberRepository.save(new Member(MEMBER_B, 1_000_000));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                while (running.get()) {
+                    txTemplate.executeWithoutResult(status -> {
+                        memberService.accountTransfer(MEMBER_A, MEMBER_B, 1);
+                        sleep(5);
+                    });
+                }
+                return null;
+            });
+        }
+
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(200);
+            log.info("decision={}", sizer.tick());
+        }
+        assertThat(sizer.getGrows()).isPositive();
+        assertThat(sizer.getCurrentSize()).isGreaterThan(2).isLessThanOrEqualTo(8);
+
+        running.set(false);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 15; i++) {
+            Thread.sleep(20);
+            sizer.tick();
+        }
+        assertThat(sizer.getShrinks()).isPositive();
+        assertThat(sizer.getCurrentSize()).isEqualTo(2);
+        assertThat(sizer.getLastDecision().getReason()).isEqualTo("steady");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
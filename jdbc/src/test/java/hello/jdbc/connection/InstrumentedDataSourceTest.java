@@ -0,0 +1,118 @@
+package hello.jdbc.connection;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.management.ObjectName;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 풀 고갈(최대 2개, connectionTimeout 250ms)에서 획득 실패를 기록하는지 보므로 전용 HikariDataSource 를 만든다.
+ * DB 는 공용 URL (schema.sql) 을 그대로 쓴다.
+ */
+@Slf4j
+class InstrumentedDataSourceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+
+    HikariDataSource pool;
+    InstrumentedDataSource dataSource;
+
+    @BeforeEach
+    void before() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(URL);
+        pool.setUsername(USERNAME);
+        pool.setPassword(PASSWORD);
+        pool.setMaximumPoolSize(2);
+        pool.setConnectionTimeout(250);
+        pool.setPoolName("instrumentedPool");
+
+        dataSource = new InstrumentedDataSource(pool, Duration.ofMillis(50), 1);
+    }
+
+    @AfterEach
+    void after() {
+        MemberRepositoryV5 memberRepository = new MemberRepositoryV5(pool);
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+        dataSource.close();
+        pool.close();
+    }
+
+    @Test
+    void transferRecordsAcquireAndHold() {
+        MemberRepositoryV5 memberRepository = new MemberRepositoryV5(dataSource);
+        MemberServiceV4 memberService = new MemberServiceV4(memberRepository);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        long before = dataSource.getAcquireHistogram().getCount();
+
+        //트랜잭션 하나 = 커넥션 획득 1번
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000));
+
+        assertThat(dataSource.getAcquireHistogram().getCount()).isEqualTo(before + 1);
+        assertThat(dataSource.getHoldHistogram().getCount()).isEqualTo(before + 1);
+        assertThat(dataSource.getActive()).isZero();
+        assertThat(dataSource.getLeakWarnings()).isZero();
+        log.info("acquire p99={}us hold p99={}us",
+                dataSource.getAcquireHistogram().percentileMicros(0.99),
+                dataSource.getHoldHistogram().percentileMicros(0.99));
+    }
+
+    @Test
+    void leakWarningOnce() throws Exception {
+        try (Connection con = dataSource.getConnection()) {
+            assertThat(dataSource.getActive()).isEqualTo(1);
+            Thread.sleep(80);
+            assertThat(dataSource.checkLeaks()).isEqualTo(1);
+            //같은 커넥션은 다시 경고하지 않는다
+            assertThat(dataSource.checkLeaks()).isZero();
+        }
+        assertThat(dataSource.getLeakWarnings()).isEqualTo(1);
+        assertThat(dataSource.getHoldHistogram().getMaxMicros()).isGreaterThanOrEqualTo(80_000);
+    }
+
+    @Test
+    void acquireFailureRecorded() throws Exception {
+        long before = dataSource.getAcquireHistogram().getCount();
+        try (Connection con1 = dataSource.getConnection(); Connection con2 = dataSource.getConnection()) {
+            //풀(2개) 고갈 - connectionTimeout 만큼 기다린 뒤 실패
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLException.class);
+        }
+
+        assertThat(dataSource.getAcquireFailures()).isEqualTo(1);
+        assertThat(dataSource.getAcquireHistogram().getCount()).isEqualTo(before + 3);
+        assertThat(dataSource.getAcquireHistogram().getMaxMicros()).isGreaterThanOrEqualTo(250_000);
+        assertThat(dataSource.getPending()).isZero();
+    }
+
+    @Test
+    void mbean() throws Exception {
+        ObjectName name = dataSource.registerMBean("instrumented");
+        try (Connection con = dataSource.getConnection()) {
+            Object active = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Active");
+            assertThat(active).isEqualTo(1);
+        }
+        Object acquisitions = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Acquisitions");
+        assertThat((Long) acquisitions).isPositive();
+        Object failures = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "AcquireFailures");
+        assertThat(failures).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,115 @@
+package hello.jdbc.connection;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * primary, replica 를 각각 메모리 H2 로 띄워서 라우팅을 확인한다.
+ * replica 에는 다른 잔액을 넣어두고 어느 쪽에서 읽었는지 구분한다.
+ */
+@Slf4j
+class ReadWriteRoutingDataSourceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+
+    HikariDataSource primary;
+    HikariDataSource replica;
+    AtomicReference<Duration> replicaLag = new AtomicReference<>(Duration.ZERO);
+    ReadWriteRoutingDataSource routingDataSource;
+
+    MemberRepository memberRepository;
+    MemberServiceV4 memberService;
+    TransactionTemplate writeTx;
+    TransactionTemplate readOnlyTx;
+
+    @BeforeEach
+    void before() {
+        primary = pool("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "primaryPool");
+        replica = pool("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "replicaPool");
+        createMembers(primary, 10000);
+        createMembers(replica, 5000);
+
+        routingDataSource = new ReadWriteRoutingDataSource(primary, replica,
+                replicaLag::get, Duration.ofSeconds(1), Duration.ZERO);
+        DataSource dataSource = ReadWriteRoutingDataSource.lazy(routingDataSource);
+
+        memberRepository = new MemberRepositoryV5(dataSource);
+        memberService = new MemberServiceV4(memberRepository);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+    }
+
+    @AfterEach
+    void after() {
+        new JdbcTemplate(primary).update("drop table member");
+        new JdbcTemplate(replica).update("drop table member");
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    void readOnlyGoesToReplica() {
+        Member member = readOnlyTx.execute(status -> memberRepository.findById(MEMBER_A));
+        assertThat(member.getMoney()).isEqualTo(5000);
+        assertThat(routingDataSource.getRoutedCount(DataSourceRoute.REPLICA)).isEqualTo(1);
+    }
+
+    @Test
+    void writeGoesToPrimary() {
+        writeTx.executeWithoutResult(status -> memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000));
+
+        Member member = writeTx.execute(status -> memberRepository.findById(MEMBER_A));
+        assertThat(member.getMoney()).isEqualTo(8000);
+        assertThat(routingDataSource.getRoutedCount(DataSourceRoute.REPLICA)).isZero();
+    }
+
+    @Test
+    void fallbackToPrimaryWhenReplicaLags() {
+        replicaLag.set(Duration.ofSeconds(5));
+
+        Member member = readOnlyTx.execute(status -> memberRepository.findById(MEMBER_A));
+        assertThat(member.getMoney()).isEqualTo(10000);
+        assertThat(routingDataSource.getFallbackCount()).isEqualTo(1);
+
+        RoutePoolStats primaryStats = routingDataSource.getPoolStats(DataSourceRoute.PRIMARY);
+        RoutePoolStats replicaStats = routingDataSource.getPoolStats(DataSourceRoute.REPLICA);
+        log.info("primary={}, replica={}", primaryStats, replicaStats);
+        assertThat(primaryStats.getActive()).isZero();
+    }
+
+    private HikariDataSource pool(String url, String poolName) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        dataSource.setMaximumPoolSize(4);
+        dataSource.setPoolName(poolName);
+        return dataSource;
+    }
+
+    private void createMembers(DataSource dataSource, int money) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.update("create table member (member_id varchar(10) primary key, money integer not null default 0)");
+        template.update("insert into member(member_id, money) values (?, ?)", MEMBER_A, money);
+        template.update("insert into member(member_id, money) values (?, ?)", MEMBER_B, money);
+    }
+}
@@ -0,0 +1,88 @@
+package hello.jdbc.connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.MemberRepositoryV5;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Duration;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 공용 DataSource (스프링 부트 자동 구성 풀)를 감싸서 쓴다.
+ * 감싼 DataSource 는 테스트 트랜잭션에 참여하지 않으므로 롤백 대신 직접 지운다.
+ */
+@Slf4j
+@SpringBootTest
+class SqlLoggingDataSourceTest {
+
+    public static final String MEMBER_A = "memberA";
+
+    @Autowired
+    DataSource pool;
+
+    @AfterEach
+    void after() {
+        new MemberRepositoryV5(pool).delete(MEMBER_A);
+    }
+
+    @Test
+    void recordStatements() {
+        //임계값 0 - 모든 문장을 느린 쿼리로 기록하고 매번 EXPLAIN
+        SqlLoggingDataSource dataSource = new SqlLoggingDataSource(pool, Duration.ZERO, 1);
+
+        for (MemberRepository repository : new MemberRepository[]{new MemberRepositoryV4_2(dataSource), new MemberRepositoryV5(dataSource)}) {
+            repository.save(new Member(MEMBER_A, 10000));
+            repository.findById(MEMBER_A);
+            repository.update(MEMBER_A, 20000);
+            repository.delete(MEMBER_A);
+        }
+
+        SqlStats findById = dataSource.getStats("select * from member where member_id = ?");
+        assertThat(findById.getCount()).isEqualTo(2);
+        assertThat(findById.getBindCount()).isEqualTo(1);
+        assertThat(findById.getRows()).isEqualTo(2);
+        assertThat(findById.getSlowCount()).isEqualTo(2);
+
+        SqlStats delete = dataSource.getStats("delete from member where member_id=?");
+        assertThat(delete.getRows()).isEqualTo(2);
+        assertThat(dataSource.getSlowStatements()).isPositive();
+        dataSource.getStats().values().forEach(stats -> log.info("{}", stats));
+    }
+
+    @Test
+    void disabledReturnsTargetConnection() throws Exception {
+        SqlLoggingDataSource dataSource = new SqlLoggingDataSource(pool, Duration.ofMillis(100), 0);
+        dataSource.setEnabled(false);
+
+        try (Connection con = dataSource.getConnection()) {
+            assertThat(Proxy.isProxyClass(con.getClass())).isFalse();
+        }
+
+        //꺼져 있을 때 문장당 추가 비용 측정 (참고용)
+        MemberRepositoryV5 raw = new MemberRepositoryV5(pool);
+        MemberRepositoryV5 disabled = new MemberRepositoryV5(dataSource);
+        raw.save(new Member(MEMBER_A, 10000));
+        int count = 10_000;
+        long rawNanos = run(raw, count);
+        long disabledNanos = run(disabled, count);
+        log.info("raw={}ns/op disabled={}ns/op", rawNanos / count, disabledNanos / count);
+        assertThat(dataSource.getStats()).isEmpty();
+    }
+
+    private long run(MemberRepositoryV5 repository, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            repository.findById(MEMBER_A);
+        }
+        return System.nanoTime() - start;
+    }
+}
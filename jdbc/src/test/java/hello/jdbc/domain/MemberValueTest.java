@@ -0,0 +1,101 @@
+package hello.jdbc.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class MemberValueTest {
+
+    @Test
+    void valueSemantics() {
+        MemberValue value = MemberValue.of("memberA", 10000);
+
+        assertThat(value).isEqualTo(MemberValue.of("memberA", 10000));
+        assertThat(value.hashCode()).isEqualTo(MemberValue.of("memberA", 10000).hashCode());
+        assertThat(value).isNotEqualTo(MemberValue.of("memberA", 20000));
+        assertThat(value.withMoney(10000)).isSameAs(value);
+        assertThat(value.withMoney(20000).getMoney()).isEqualTo(20000);
+    }
+
+    @Test
+    void memberAdapter() {
+        Member member = new Member("memberA", 10000);
+        MemberValue value = MemberValue.from(member);
+
+        Member converted = value.toMember();
+        assertThat(converted).isEqualTo(member);
+        converted.setMoney(0); //변환 결과를 바꿔도 값에는 영향 없음
+        assertThat(value.getMoney()).isEqualTo(10000);
+        assertThat(value.toMember()).isNotSameAs(converted);
+    }
+
+    @Test
+    void fromResultSet() throws SQLException {
+        MemberIdInterner interner = new MemberIdInterner();
+        try (Connection con = DriverManager.getConnection("jdbc:h2:mem:memberValue", "sa", "");
+             Statement stmt = con.createStatement()) {
+            stmt.execute("create table member (member_id varchar(10) primary key, money integer not null default 0)");
+            stmt.execute("insert into member values ('memberA', 10000)");
+
+            MemberValue first = read(stmt, interner);
+            MemberValue second = read(stmt, interner);
+            assertThat(first).isEqualTo(MemberValue.of("memberA", 10000));
+            //같은 행을 두 번 읽어도 ID 문자열은 하나
+            assertThat(second.getMemberId()).isSameAs(first.getMemberId());
+            assertThat(interner.size()).isEqualTo(1);
+        }
+    }
+
+    /**
+     * 같은 회원을 여러 번 캐시에 적재하는 경우의 보관 힙 비교 (참고용)
+     * 헤더 12 + 참조 4 + int 4 = 20 -> 24 바이트라서 캐시된 hash 는 공짜, 절약분은 ID 중복 제거에서 나온다.
+     */
+    @Test
+    void retainedHeap() {
+        int entries = 200_000;
+        int distinct = 20_000;
+        MemberIdInterner interner = new MemberIdInterner();
+
+        long base = usedHeap();
+        Member[] members = new Member[entries];
+        for (int i = 0; i < entries; i++) {
+            members[i] = new Member(new String("member" + i % distinct), i);
+        }
+        long memberBytes = usedHeap() - base;
+
+        base = usedHeap();
+        MemberValue[] values = new MemberValue[entries];
+        for (int i = 0; i < entries; i++) {
+            values[i] = MemberValue.of(interner.intern(new String("member" + i % distinct)), i);
+        }
+        long valueBytes = usedHeap() - base;
+
+        log.info("Member={}B/entry MemberValue+interned={}B/entry, 10M entries saves ~{}MB",
+                memberBytes / entries, valueBytes / entries,
+                (memberBytes - valueBytes) / entries * 10_000_000L / (1024 * 1024));
+        assertThat(interner.size()).isEqualTo(distinct);
+        assertThat(members.length + values.length).isEqualTo(entries * 2);
+    }
+
+    private MemberValue read(Statement stmt, MemberIdInterner interner) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("select * from member where member_id = 'memberA'")) {
+            rs.next();
+            return MemberValue.from(rs, interner);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
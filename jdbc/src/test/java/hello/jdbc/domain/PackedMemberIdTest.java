@@ -0,0 +1,125 @@
+package hello.jdbc.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class PackedMemberIdTest {
+
+    @Test
+    void packShortAscii() {
+        for (String memberId : new String[]{"", "a", "memberA", "12345678", "123456789", "abcdefghijklmnop"}) {
+            PackedMemberId packed = PackedMemberId.of(memberId);
+            assertThat(packed.isPacked()).isTrue();
+            assertThat(packed.length()).isEqualTo(memberId.length());
+            assertThat(packed.toString()).isEqualTo(memberId);
+            assertThat(packed).isEqualTo(PackedMemberId.of(new String(memberId)));
+            assertThat(packed.hashCode()).isEqualTo(PackedMemberId.of(new String(memberId)).hashCode());
+        }
+        assertThat(PackedMemberId.of("memberA")).isNotEqualTo(PackedMemberId.of("memberB"));
+        assertThat(PackedMemberId.of("a")).isNotEqualTo(PackedMemberId.of("a\u0001"));
+    }
+
+    @Test
+    void fallback() {
+        for (String memberId : new String[]{"abcdefghijklmnopq", "회원A", "a\u0000b"}) {
+            PackedMemberId id = PackedMemberId.of(memberId);
+            assertThat(id.isPacked()).isFalse();
+            assertThat(id.toString()).isEqualTo(memberId);
+            assertThat(id).isEqualTo(PackedMemberId.of(new String(memberId)));
+        }
+        assertThat(PackedMemberId.of("abcdefghijklmnopq")).isNotEqualTo(PackedMemberId.of("abcdefghijklmnop"));
+    }
+
+    /**
+     * HashMap<String, Member> 와 HashMap<PackedMemberId, MemberValue> 조회 비교 (참고용, JMH 대신)
+     * packed 는 키를 미리 인코딩해 둔 경우와 조회마다 인코딩하는 경우를 같이 잰다.
+     */
+    @Test
+    void lookupComparison() {
+        int size = 100_000;
+        int rounds = 20;
+        String[] ids = new String[size];
+        PackedMemberId[] packedIds = new PackedMemberId[size];
+        Map<String, Member> byString = new HashMap<>();
+        Map<PackedMemberId, MemberValue> byPacked = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            ids[i] = "member" + i;
+            packedIds[i] = PackedMemberId.of(ids[i]);
+            byString.put(ids[i], new Member(ids[i], i));
+            byPacked.put(packedIds[i], MemberValue.of(ids[i], i));
+        }
+
+        //조회마다 새 String - DB/요청에서 막 읽어 hash 가 캐시되지 않은 키
+        long stringNanos = measure(rounds, () -> {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += byString.get(new String(ids[i])).getMoney();
+            }
+            return sum;
+        });
+        long packedNanos = measure(rounds, () -> {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += byPacked.get(packedIds[i]).getMoney();
+            }
+            return sum;
+        });
+        long encodeNanos = measure(rounds, () -> {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += byPacked.get(PackedMemberId.of(ids[i])).getMoney();
+            }
+            return sum;
+        });
+        long lookups = (long) size * rounds;
+        log.info("lookup String={}ns/op packed={}ns/op packed+encode={}ns/op",
+                stringNanos / lookups, packedNanos / lookups, encodeNanos / lookups);
+
+        long stringKeyBytes = allocated(() -> {
+            String[] keys = new String[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = new String(ids[i]);
+            }
+            return keys;
+        });
+        long packedKeyBytes = allocated(() -> {
+            PackedMemberId[] keys = new PackedMemberId[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = PackedMemberId.of(ids[i]);
+            }
+            return keys;
+        });
+        log.info("key memory String={}B/key packed={}B/key", stringKeyBytes / size, packedKeyBytes / size);
+
+        for (int i = 0; i < size; i++) {
+            assertThat(byPacked.get(PackedMemberId.of(ids[i])).getMoney()).isEqualTo(byString.get(ids[i]).getMoney());
+        }
+    }
+
+    private long measure(int rounds, java.util.function.LongSupplier work) {
+        work.getAsLong(); //warm up
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int r = 0; r < rounds; r++) {
+            sum += work.getAsLong();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(sum).isPositive();
+        return elapsed;
+    }
+
+    private long allocated(java.util.function.Supplier<Object[]> work) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        Object[] keys = work.get();
+        long bytes = threads.getCurrentThreadAllocatedBytes() - before;
+        assertThat(keys).doesNotContainNull();
+        return bytes;
+    }
+}
@@ -0,0 +1,89 @@
+package hello.jdbc.export;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+@Slf4j
+class MemberBalanceExporterTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+
+    @TempDir
+    Path dir;
+
+    MemberRepository memberRepository;
+    MemberBalanceExporter exporter;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USERNAME, PASSWORD);
+        memberRepository = new MemberRepositoryV5(dataSource);
+        exporter = new MemberBalanceExporter(dataSource);
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+    }
+
+    @Test
+    void export() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 20000));
+
+        Path file = dir.resolve("member.mbal");
+        long rows = exporter.export(file);
+
+        Map<String, Integer> balances = new HashMap<>();
+        try (MemberBalanceFileReader reader = new MemberBalanceFileReader(file)) {
+            assertThat(reader.getTotalRows()).isEqualTo(rows);
+            reader.forEach(balances::put);
+        }
+        assertThat(balances).containsEntry(MEMBER_A, 10000).containsEntry(MEMBER_B, 20000);
+    }
+
+    @Test
+    void failedExportKeepsPreviousFile() throws IOException {
+        Path file = dir.resolve("member.mbal");
+        try (MemberBalanceFileWriter writer = new MemberBalanceFileWriter(file)) {
+            writer.append(MEMBER_A, 10000);
+            writer.finish();
+        }
+
+        //두 번째 행에서 getInt 가 실패하는 테이블
+        //공용 member 테이블은 money 가 integer 라 이런 행을 만들 수 없으므로 스키마가 다른 별도 DB 를 쓴다
+        DriverManagerDataSource broken = new DriverManagerDataSource("jdbc:h2:mem:brokenExport;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        JdbcTemplate template = new JdbcTemplate(broken);
+        template.update("create table if not exists member (member_id varchar(10) primary key, money varchar(10))");
+        template.update("merge into member key(member_id) values ('a', '1'), ('b', 'x')");
+
+        assertThatThrownBy(() -> new MemberBalanceExporter(broken).export(file))
+                .isInstanceOf(RuntimeException.class);
+
+        try (MemberBalanceFileReader reader = new MemberBalanceFileReader(file)) {
+            assertThat(reader.getTotalRows()).isEqualTo(1);
+        }
+        try (var files = Files.list(dir)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package hello.jdbc.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Slf4j
+class MemberBalanceFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeAndRead() {
+        Path file = dir.resolve("balance.mbal");
+        try (MemberBalanceFileWriter writer = new MemberBalanceFileWriter(file, 3)) {
+            writer.append("memberA", 10000);
+            writer.append("memberB", -500);
+            writer.append("memberC", Integer.MAX_VALUE);
+            writer.append("회원D", Integer.MIN_VALUE);
+            writer.finish();
+        }
+
+        List<String> rows = new ArrayList<>();
+        try (MemberBalanceFileReader reader = new MemberBalanceFileReader(file)) {
+            assertThat(reader.getTotalRows()).isEqualTo(4);
+            assertThat(reader.getBlockCount()).isEqualTo(2);
+            reader.forEach((memberId, money) -> rows.add(memberId + "=" + money));
+        }
+        assertThat(rows).containsExactly(
+                "memberA=10000", "memberB=-500", "memberC=" + Integer.MAX_VALUE, "회원D=" + Integer.MIN_VALUE);
+    }
+
+    @Test
+    void unfinishedFile() {
+        Path file = dir.resolve("unfinished.mbal");
+        try (MemberBalanceFileWriter writer = new MemberBalanceFileWriter(file, 1)) {
+            writer.append("memberA", 10000);
+            writer.append("memberB", 20000);
+        }
+
+        //footer 없이 닫힌 파일은 읽지 않는다
+        assertThatThrownBy(() -> new MemberBalanceFileReader(file))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void corruptedFile() throws IOException {
+        Path file = dir.resolve("corrupted.mbal");
+        try (MemberBalanceFileWriter writer = new MemberBalanceFileWriter(file)) {
+            writer.append("memberA", 10000);
+            writer.finish();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), MemberBalanceFormat.HEADER_SIZE + 1);
+        }
+
+        assertThatThrownBy(() -> new MemberBalanceFileReader(file))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    void compareWithCsv() throws IOException {
+        int count = 1_000_000;
+        Path file = dir.resolve("bench.mbal");
+        Path csv = dir.resolve("bench.csv");
+
+        long start = System.nanoTime();
+        try (MemberBalanceFileWriter writer = new MemberBalanceFileWriter(file)) {
+            for (int i = 0; i < count; i++) {
+                writer.append(memberId(i), i % 100_000);
+            }
+            writer.finish();
+        }
+        long writeNanos = System.nanoTime() - start;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(memberId(i));
+                writer.write(',');
+                writer.write(Integer.toString(i % 100_000));
+                writer.newLine();
+            }
+        }
+
+        long[] sum = new long[1];
+        start = System.nanoTime();
+        try (MemberBalanceFileReader reader = new MemberBalanceFileReader(file)) {
+            reader.forEach((memberId, money) -> sum[0] += money);
+        }
+        long readNanos = System.nanoTime() - start;
+
+        long fileSize = Files.size(file);
+        long csvSize = Files.size(csv);
+        log.info("rows={}, snapshot={} bytes, csv={} bytes, ratio={}", count, fileSize, csvSize, (double) fileSize / csvSize);
+        log.info("write={} MB/s, read={} MB/s", mbPerSec(csvSize, writeNanos), mbPerSec(csvSize, readNanos));
+        assertThat(fileSize).isLessThan(csvSize);
+    }
+
+    private static String memberId(int i) {
+        return String.format("member%08d", i);
+    }
+
+    //비교 기준을 맞추기 위해 원본(CSV) 크기 기준으로 처리량을 계산
+    private static double mbPerSec(long bytes, long nanos) {
+        return bytes / (1024.0 * 1024.0) / (nanos / 1_000_000_000.0);
+    }
+}
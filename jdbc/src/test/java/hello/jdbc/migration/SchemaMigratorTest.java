@@ -0,0 +1,186 @@
+package hello.jdbc.migration;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.MemberRepositoryV5;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+@Slf4j
+class SchemaMigratorTest {
+
+    //schema_version 은 마이그레이션 기록용이라 비교하지 않는다
+    static final String COLUMNS_SQL = "select table_name || '.' || column_name || ' ' || data_type || ' '"
+            + " || coalesce(character_maximum_length, 0) || ' ' || is_nullable || ' ' || coalesce(column_default, '')"
+            + " from information_schema.columns"
+            + " where table_schema = 'PUBLIC' and table_name <> 'SCHEMA_VERSION' order by 1";
+    static final String CONSTRAINTS_SQL = "select tc.table_name || ' ' || tc.constraint_name || ' ' || tc.constraint_type"
+            + " || ' ' || coalesce(cc.check_clause, '')"
+            + " from information_schema.table_constraints tc left join information_schema.check_constraints cc"
+            + " on cc.constraint_schema = tc.constraint_schema and cc.constraint_name = tc.constraint_name"
+            + " where tc.table_schema = 'PUBLIC' and tc.table_name <> 'SCHEMA_VERSION' order by 1";
+    //PK 인덱스 이름은 H2 가 만들므로 비교하지 않는다
+    static final String INDEXES_SQL = "select i.table_name || ' '"
+            + " || case when i.index_type_name = 'PRIMARY KEY' then 'PK' else i.index_name end"
+            + " || ' ' || i.index_type_name || ' ' || ic.ordinal_position || ' ' || ic.column_name"
+            + " from information_schema.indexes i join information_schema.index_columns ic"
+            + " on ic.index_schema = i.index_schema and ic.table_name = i.table_name and ic.index_name = i.index_name"
+            + " where i.table_schema = 'PUBLIC' and i.table_name <> 'SCHEMA_VERSION' order by 1";
+
+    DriverManagerDataSource dataSource;
+    JdbcTemplate template;
+    SchemaMigrator migrator;
+
+    @BeforeEach
+    void before() {
+        //테스트마다 빈 DB
+        String url = "jdbc:h2:mem:migration" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        dataSource = new DriverManagerDataSource(url, USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        migrator = new SchemaMigrator(dataSource);
+    }
+
+    @Test
+    void migrateOnce() {
+        List<Migration> applied = migrator.migrate();
+
+        assertThat(applied).extracting(Migration::getVersion).containsExactly(1, 2);
+        assertThat(migrator.currentVersion()).isEqualTo(2);
+        assertThat(migrator.migrate()).isEmpty();
+    }
+
+    @Test
+    void checkConstraints() {
+        migrator.migrate();
+        MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+
+        assertThatThrownBy(() -> repository.save(new Member("memberA", -1)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> repository.save(new Member("", 0)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    /**
+     * schema.sql (빠른 부트스트랩) 과 마이그레이션 결과가 같아야 한다. 한쪽만 고치면 실패한다.
+     */
+    @Test
+    void schemaSqlMatchesMigrations() {
+        migrator.migrate();
+        DriverManagerDataSource bootstrapped = new DriverManagerDataSource(
+                "jdbc:h2:mem:schema" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(bootstrapped);
+        JdbcTemplate expected = new JdbcTemplate(bootstrapped);
+
+        for (String sql : new String[]{COLUMNS_SQL, CONSTRAINTS_SQL, INDEXES_SQL}) {
+            assertThat(template.queryForList(sql, String.class))
+                    .isNotEmpty()
+                    .containsExactlyElementsOf(expected.queryForList(sql, String.class));
+        }
+    }
+
+    @Test
+    void changedMigrationFails() {
+        migrator.migrate();
+        template.update("update schema_version set checksum = 0 where version = 1");
+
+        assertThatThrownBy(() -> migrator.migrate())
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * 리포지토리가 실제로 실행한 SQL 의 실행 계획에서 PK 인덱스 사용을 확인한다.
+     */
+    @Test
+    void repositoryQueriesUsePrimaryKey() throws SQLException {
+        migrator.migrate();
+        List<String> sqls = new ArrayList<>();
+        SqlCapturingDataSource capturing = new SqlCapturingDataSource(dataSource, sqls);
+
+        for (MemberRepository repository : List.of(new MemberRepositoryV4_2(capturing), new MemberRepositoryV5(capturing))) {
+            repository.save(new Member("memberA", 10000));
+            repository.findById("memberA");
+            repository.update("memberA", 20000);
+            repository.delete("memberA");
+        }
+
+        for (String sql : sqls) {
+            if (sql.startsWith("insert")) {
+                continue;
+            }
+            String plan = explain(sql);
+            log.info("sql={} plan={}", sql, plan);
+            assertThat(plan).doesNotContain("tableScan").contains("PRIMARY_KEY");
+        }
+        assertThat(sqls).anyMatch(sql -> sql.startsWith("select")).anyMatch(sql -> sql.startsWith("update"));
+    }
+
+    @Test
+    void moneyRangeUsesIndex() throws SQLException {
+        migrator.migrate();
+        assertThat(explain("select * from member where money between ? and ?")).contains("IDX_MEMBER_MONEY");
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("explain " + sql)) {
+            int parameters = pstmt.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                pstmt.setObject(i, null);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    /**
+     * prepareStatement 로 넘어온 SQL 을 모은다.
+     */
+    static class SqlCapturingDataSource extends DelegatingDataSource {
+        private final List<String> sqls;
+
+        SqlCapturingDataSource(DataSource target, List<String> sqls) {
+            super(target);
+            this.sqls = sqls;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection target = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (p, method, args) -> {
+                        if (method.getName().equals("prepareStatement")) {
+                            sqls.add(((String) args[0]).trim().toLowerCase());
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package hello.jdbc.repository;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.connection.StatementTrackingDataSource;
+import hello.jdbc.connection.StatementTrackingDataSource.Task;
+import hello.jdbc.domain.Member;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 작업 스레드 2개와 커넥션 2개를 맞춰 두고, 취소된 쿼리가 커넥션을 돌려주는지 보므로 전용 HikariDataSource 를 만든다.
+ * DB 는 공용 URL (schema.sql) 을 그대로 쓴다.
+ */
+@Slf4j
+class AsyncMemberRepositoryTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String SLOW = "slow";
+    static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    HikariDataSource pool;
+    StatementTrackingDataSource dataSource;
+    AsyncMemberRepository asyncRepository;
+
+    @BeforeEach
+    void before() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(URL);
+        pool.setUsername(USERNAME);
+        pool.setPassword(PASSWORD);
+        pool.setMaximumPoolSize(2);
+
+        dataSource = new StatementTrackingDataSource(pool);
+        MemberRepositoryV5 memberRepository = new MemberRepositoryV5(pool);
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 20000));
+
+        asyncRepository = new AsyncMemberRepository(new SlowMemberRepository(dataSource), dataSource, 2, 100);
+    }
+
+    @AfterEach
+    void after() {
+        asyncRepository.close();
+        MemberRepositoryV5 memberRepository = new MemberRepositoryV5(pool);
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+        pool.close();
+    }
+
+    @Test
+    void findAllAsync() throws Exception {
+        List<Member> members = asyncRepository.findAllAsync(List.of(MEMBER_B, MEMBER_A), TIMEOUT).get();
+
+        assertThat(members).extracting(Member::getMemberId).containsExactly(MEMBER_B, MEMBER_A);
+        assertThat(members).extracting(Member::getMoney).containsExactly(20000, 10000);
+        assertThat(asyncRepository.getExecutionHistogram().getCount()).isEqualTo(2);
+        assertThat(asyncRepository.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void translatedExceptionPropagates() {
+        //V5 - 스프링 예외 변환
+        assertThatThrownBy(() -> asyncRepository.findAllAsync(List.of(MEMBER_A, "none"), TIMEOUT).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(EmptyResultDataAccessException.class);
+
+        //V4_1 - 직접 만든 예외 그대로
+        try (AsyncMemberRepository v4 = new AsyncMemberRepository(new MemberRepositoryV4_1(dataSource), dataSource, 1, 10)) {
+            assertThatThrownBy(() -> v4.findByIdAsync("none", TIMEOUT).get())
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(NoSuchElementException.class);
+        }
+    }
+
+    @Test
+    void timeoutCancelsStatement() throws Exception {
+        CompletableFuture<Member> slow = asyncRepository.findByIdAsync(SLOW, Duration.ofMillis(200));
+
+        assertThatThrownBy(slow::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(asyncRepository.getTimeouts()).isEqualTo(1);
+
+        //취소된 쿼리가 커넥션과 스레드를 바로 돌려준다
+        long start = System.nanoTime();
+        Member member = asyncRepository.findByIdAsync(MEMBER_A, TIMEOUT).get();
+        assertThat(member.getMoney()).isEqualTo(10000);
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(5);
+        awaitIdle();
+    }
+
+    @Test
+    void cancelFanOut() throws Exception {
+        CompletableFuture<List<Member>> result = asyncRepository.findAllAsync(List.of(SLOW, MEMBER_A), TIMEOUT);
+        Thread.sleep(100);
+        result.cancel(true);
+
+        assertThat(result).isCancelled();
+        awaitIdle();
+        assertThat(asyncRepository.getCancels()).isPositive();
+    }
+
+    @Test
+    void lateCancelDoesNotReachNextTask() throws Exception {
+        Task first = dataSource.begin();
+        new JdbcTemplate(dataSource).queryForObject("select count(*) from member", Long.class);
+        //close 된 Statement 는 기록에서 빠진다
+        assertThat(first.getOpenStatements()).isZero();
+        dataSource.end(first);
+
+        Task second = dataSource.begin();
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("select money from member where member_id = 'memberA'")) {
+            assertThat(second.getOpenStatements()).isEqualTo(1);
+            //끝난 작업의 늦은 취소
+            assertThat(dataSource.cancel(first)).isFalse();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getInt(1)).isEqualTo(10000);
+            }
+        } finally {
+            dataSource.end(second);
+        }
+        assertThat(second.getOpenStatements()).isZero();
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        for (int i = 0; i < 100 && asyncRepository.getActiveCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(asyncRepository.getActiveCount()).isZero();
+    }
+
+    /**
+     * SLOW 조회는 취소되기 전까지 끝나지 않는 쿼리를 실행한다.
+     */
+    static class SlowMemberRepository extends MemberRepositoryV5 {
+        private final JdbcTemplate template;
+
+        SlowMemberRepository(DataSource dataSource) {
+            super(dataSource);
+            this.template = new JdbcTemplate(dataSource);
+        }
+
+        @Override
+        public Member findById(String memberId) {
+            if (SLOW.equals(memberId)) {
+                template.queryForObject("select count(*) from system_range(1, 100000) a, system_range(1, 100000) b", Long.class);
+            }
+            return super.findById(memberId);
+        }
+    }
+}
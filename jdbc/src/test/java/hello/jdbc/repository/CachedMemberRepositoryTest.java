@@ -0,0 +1,89 @@
+package hello.jdbc.repository;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Slf4j
+class CachedMemberRepositoryTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+
+    CachedMemberRepository repository;
+    TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USERNAME, PASSWORD);
+        repository = new CachedMemberRepository(new MemberRepositoryV5(dataSource));
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void after() {
+        repository.delete(MEMBER_A);
+        repository.delete(MEMBER_B);
+    }
+
+    @Test
+    void cacheInTransaction() {
+        repository.save(new Member(MEMBER_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            Member first = repository.findById(MEMBER_A);
+            first.setMoney(0); //캐시에는 복사본이 들어가므로 영향 없음
+            Member second = repository.findById(MEMBER_A);
+            assertThat(second.getMoney()).isEqualTo(10000);
+
+            repository.update(MEMBER_A, 20000);
+            assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(20000);
+        });
+
+        MemberTxCache.Stats stats = repository.getStats();
+        log.info("transactions={}, hits={}, misses={}", stats.getTransactions(), stats.getHits(), stats.getMisses());
+        assertThat(stats.getTransactions()).isEqualTo(1);
+        assertThat(stats.getHits()).isEqualTo(2);
+        assertThat(stats.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void clearedAfterRollback() {
+        repository.save(new Member(MEMBER_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.update(MEMBER_A, 20000);
+            repository.findById(MEMBER_A);
+            status.setRollbackOnly();
+        });
+
+        //트랜잭션 밖에서는 캐시를 사용하지 않는다.
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    void accountTransfer() {
+        repository.save(new Member(MEMBER_A, 10000));
+        repository.save(new Member(MEMBER_B, 10000));
+        MemberServiceV4 memberService = new MemberServiceV4(repository);
+
+        txTemplate.executeWithoutResult(status -> {
+            memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+            //같은 트랜잭션 안에서 확인 - DB 조회 없이 캐시에서 반환
+            assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+            assertThat(repository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+        });
+
+        assertThat(repository.getStats().getHits()).isEqualTo(2);
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+    }
+}
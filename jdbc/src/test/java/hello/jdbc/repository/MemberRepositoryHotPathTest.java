@@ -0,0 +1,152 @@
+package hello.jdbc.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.connection.SqlLoggingDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+/**
+ * findById / update 핫패스 점검
+ * - update 는 문장을 한 번만 실행해야 한다.
+ * - 스레드 할당 바이트로 호출당 할당량을 재고 상한을 넘지 않는지 확인한다. (JMH 대신)
+ * 공용 DataSource (스프링 부트 자동 구성 풀)를 쓰고, 여러 스레드가 커밋하므로 롤백 대신 직접 지운다.
+ */
+@Slf4j
+@SpringBootTest
+class MemberRepositoryHotPathTest {
+
+    public static final String MEMBER_A = "memberA";
+    static final String UPDATE_SQL = "update member set money= ? where member_id=?";
+    static final String UPDATE_RETURNING_SQL = "select member_id, money from final table (update member set money=? where member_id=?)";
+    static final String ADD_MONEY_RETURNING_SQL = "select member_id, money from final table (update member set money = money + ? where member_id=?)";
+
+    @Autowired
+    DataSource pool;
+    SqlLoggingDataSource dataSource;
+
+    @BeforeEach
+    void before() {
+        dataSource = new SqlLoggingDataSource(pool, Duration.ofSeconds(10), 0);
+    }
+
+    @AfterEach
+    void after() {
+        new MemberRepositoryV5(pool).delete(MEMBER_A);
+    }
+
+    @Test
+    void updateExecutesOnce() {
+        MemberRepository[] repositories = {
+                new MemberRepositoryV4_1(dataSource), new MemberRepositoryV4_2(dataSource), new MemberRepositoryV5(dataSource)};
+        for (MemberRepository repository : repositories) {
+            repository.save(new Member(MEMBER_A, 10000));
+            repository.update(MEMBER_A, 20000);
+            assertThat(repository.findById(MEMBER_A)).isEqualTo(new Member(MEMBER_A, 20000));
+            repository.delete(MEMBER_A);
+        }
+        assertThat(dataSource.getStats(UPDATE_SQL).getCount()).isEqualTo(repositories.length);
+    }
+
+    @Test
+    void returningExecutesOnce() {
+        MemberRepository[] repositories = {
+                new MemberRepositoryV4_1(dataSource), new MemberRepositoryV4_2(dataSource), new MemberRepositoryV5(dataSource)};
+        for (MemberRepository repository : repositories) {
+            repository.save(new Member(MEMBER_A, 10000));
+            assertThat(repository.updateReturning(MEMBER_A, 20000)).isEqualTo(new Member(MEMBER_A, 20000));
+            assertThat(repository.addMoneyReturning(MEMBER_A, -5000)).isEqualTo(new Member(MEMBER_A, 15000));
+            assertThat(repository.findById(MEMBER_A)).isEqualTo(new Member(MEMBER_A, 15000));
+            repository.delete(MEMBER_A);
+        }
+        assertThat(dataSource.getStats(UPDATE_RETURNING_SQL).getCount()).isEqualTo(repositories.length);
+        assertThat(dataSource.getStats(ADD_MONEY_RETURNING_SQL).getCount()).isEqualTo(repositories.length);
+
+        assertThatThrownBy(() -> new MemberRepositoryV4_1(dataSource).updateReturning("none", 1))
+                .isInstanceOf(MemberNotFoundException.class);
+        assertThatThrownBy(() -> new MemberRepositoryV4_2(dataSource).addMoneyReturning("none", 1))
+                .isInstanceOf(MemberNotFoundException.class);
+        assertThatThrownBy(() -> new MemberRepositoryV5(dataSource).updateReturning("none", 1))
+                .isInstanceOf(EmptyResultDataAccessException.class);
+    }
+
+    @Test
+    void addMoneyReturningIsAtomic() throws Exception {
+        MemberRepository repository = new MemberRepositoryV4_1(pool);
+        repository.save(new Member(MEMBER_A, 0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        repository.addMoneyReturning(MEMBER_A, 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(400);
+    }
+
+    @Test
+    void notFound() {
+        assertThatThrownBy(() -> new MemberRepositoryV4_1(dataSource).findById("none"))
+                .isInstanceOf(MemberNotFoundException.class)
+                .hasMessage("member not found memberId= none");
+        assertThatThrownBy(() -> new MemberRepositoryV4_2(dataSource).findById("none"))
+                .isInstanceOf(MemberNotFoundException.class);
+        assertThatThrownBy(() -> new MemberRepositoryV5(dataSource).findById("none"))
+                .isInstanceOf(EmptyResultDataAccessException.class);
+    }
+
+    /**
+     * 호출당 할당 상한 - H2 결과 객체, 풀 프록시, 타임아웃 예약까지 포함한 넉넉한 회귀 방지선이다.
+     * V5 는 값을 캡처하는 바인딩 람다와 JdbcTemplate 콜백이 호출마다 생기므로 상한이 더 높다.
+     */
+    @Test
+    void allocationPerCall() {
+        new MemberRepositoryV4_2(pool).save(new Member(MEMBER_A, 10000));
+
+        assertThat(bytesPerFindById(new MemberRepositoryV4_1(pool))).isLessThan(16 * 1024);
+        assertThat(bytesPerFindById(new MemberRepositoryV4_2(pool))).isLessThan(16 * 1024);
+        assertThat(bytesPerFindById(new MemberRepositoryV5(pool))).isLessThan(24 * 1024);
+    }
+
+    private static long bytesPerFindById(MemberRepository repository) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            repository.findById(MEMBER_A);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < count; i++) {
+            repository.findById(MEMBER_A);
+        }
+        long bytesPerCall = (threads.getCurrentThreadAllocatedBytes() - before) / count;
+        log.info("{} findById {} bytes/op", repository.getClass().getSimpleName(), bytesPerCall);
+        return bytesPerCall;
+    }
+}
@@ -0,0 +1,114 @@
+package hello.jdbc.repository;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.repository.QueryTimeoutPolicy.Operation;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * member 를 아주 느린 뷰로 만들어서 타임아웃을 확인한다.
+ */
+@Slf4j
+class QueryTimeoutPolicyTest {
+
+    HikariDataSource dataSource;
+    QueryTimeoutPolicy policy = QueryTimeoutPolicy.defaults();
+
+    @BeforeEach
+    void before() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:queryTimeout;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.update("create table if not exists member_base (member_id varchar(10) primary key, money integer not null default 0)");
+        template.update("merge into member_base key(member_id) values ('memberA', 10000)");
+        template.update("create view if not exists member as select b.member_id, b.money from member_base b"
+                + " where (select sum(x.x) from system_range(1, 100000) x, system_range(1, 100000) y) > 0");
+    }
+
+    @AfterEach
+    void after() {
+        dataSource.close();
+    }
+
+    @Test
+    void subSecondBudget() {
+        assertThat(policy.effectiveTimeout(Operation.FIND_BY_ID, dataSource)).isEqualTo(Duration.ofMillis(50));
+        assertThat(policy.effectiveTimeout(Operation.SCAN, dataSource)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(policy.with(Operation.SCAN, Duration.ofMillis(2500)).effectiveTimeout(Operation.SCAN, dataSource))
+                .isEqualTo(Duration.ofMillis(2500));
+    }
+
+    @Test
+    void transactionDeadline() {
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        txTemplate.setTimeout(5);
+
+        txTemplate.executeWithoutResult(status -> {
+            new JdbcTemplate(dataSource).queryForObject("select 1", Integer.class); //커넥션 획득
+            assertThat(policy.effectiveTimeout(Operation.SCAN, dataSource)).isLessThanOrEqualTo(Duration.ofSeconds(5));
+            assertThat(policy.effectiveTimeout(Operation.FIND_BY_ID, dataSource)).isEqualTo(Duration.ofMillis(50));
+        });
+    }
+
+    @Test
+    void expiredTransaction() {
+        MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        txTemplate.setTimeout(1);
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            sleep(1100);
+            repository.findById("memberA");
+        })).isInstanceOf(TransactionTimedOutException.class);
+    }
+
+    @Test
+    void v4_1Timeout() {
+        MemberRepositoryV4_1 repository = new MemberRepositoryV4_1(dataSource, policy);
+        long start = System.nanoTime();
+
+        assertThatThrownBy(() -> repository.findById("memberA"))
+                .isInstanceOf(QueryTimeoutException.class);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("timeout after {}ms", elapsedMillis);
+        //setQueryTimeout 올림(1초)이 아니라 50ms 예산에서 취소된다
+        assertThat(elapsedMillis).isLessThan(500);
+    }
+
+    @Test
+    void v4_2Timeout() {
+        MemberRepositoryV4_2 repository = new MemberRepositoryV4_2(dataSource, policy);
+        assertThatThrownBy(() -> repository.findById("memberA"))
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+
+    @Test
+    void v5Timeout() {
+        MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource, policy);
+        assertThatThrownBy(() -> repository.findById("memberA"))
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package hello.jdbc.repository;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * 16 스레드 동시 입금이 슬롯에 나뉘는지 보므로 스레드 수만큼 커넥션을 주는 전용 HikariDataSource 를 만든다.
+ * DB 는 공용 URL (schema.sql) 을 쓰고, 슬롯 테이블과 balance_slots 컬럼만 sql/member_balance_slot.sql 로 더한다.
+ */
+class SplitBalanceMemberRepositoryTest {
+
+    static final String MERCHANT = "merchant";
+
+    HikariDataSource dataSource;
+    SplitBalanceMemberRepository repository;
+    HotAccountAdmin admin;
+
+    @BeforeEach
+    void before() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        dataSource.setMaximumPoolSize(16);
+
+        new ResourceDatabasePopulator(new ClassPathResource("sql/member_balance_slot.sql")).execute(dataSource);
+
+        repository = new SplitBalanceMemberRepository(new MemberRepositoryV5(dataSource), dataSource);
+        admin = new HotAccountAdmin(repository, dataSource);
+        repository.save(new Member(MERCHANT, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        repository.delete(MERCHANT);
+        dataSource.close();
+    }
+
+    @Test
+    void promoteAndDemote() {
+        admin.promote(MERCHANT, 4);
+        assertThat(repository.isHot(MERCHANT)).isTrue();
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(10000);
+
+        for (int i = 0; i < 10; i++) {
+            repository.credit(MERCHANT, 100);
+        }
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(11000);
+
+        admin.demote(MERCHANT);
+        assertThat(repository.isHot(MERCHANT)).isFalse();
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(11000);
+    }
+
+    @Test
+    void debitSweepsSlots() {
+        admin.promote(MERCHANT, 4);
+        for (int i = 0; i < 8; i++) {
+            repository.credit(MERCHANT, 1000);
+        }
+
+        repository.debit(MERCHANT, 15000);
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(3000);
+
+        assertThatThrownBy(() -> repository.debit(MERCHANT, 3001))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(3000);
+
+        //MemberRepository.update 도 차이만큼 credit/debit 으로 처리
+        repository.update(MERCHANT, 5000);
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(5000);
+    }
+
+    @Test
+    void notFoundIsNotInsufficientBalance() {
+        assertThatThrownBy(() -> repository.debit("none", 1))
+                .isInstanceOf(MemberNotFoundException.class);
+        assertThatThrownBy(() -> repository.credit("none", 1))
+                .isInstanceOf(MemberNotFoundException.class);
+        assertThatThrownBy(() -> repository.findById("none"))
+                .isInstanceOf(MemberNotFoundException.class);
+        assertThatThrownBy(() -> repository.debit(MERCHANT, 10001))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("잔액 부족");
+    }
+
+    @Test
+    void hotFlagSharedAcrossInstances() {
+        //다른 서버 - promote 전에 만들어져 힌트가 비어 있다
+        SplitBalanceMemberRepository other = new SplitBalanceMemberRepository(new MemberRepositoryV5(dataSource), dataSource);
+        admin.promote(MERCHANT, 4);
+
+        assertThat(other.isHot(MERCHANT)).isTrue();
+        for (int i = 0; i < 10; i++) {
+            other.credit(MERCHANT, 100);
+        }
+        //입금은 슬롯으로 가고 기본 로우는 0 그대로
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        assertThat(template.queryForObject("select money from member where member_id=?", Integer.class, MERCHANT)).isZero();
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(11000);
+
+        //다른 서버 입장에서는 힌트가 hot 인 채로 demote
+        admin.demote(MERCHANT);
+        other.credit(MERCHANT, 500);
+        other.debit(MERCHANT, 1500);
+        assertThat(other.isHot(MERCHANT)).isFalse();
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(10000);
+        assertThat(template.queryForObject("select count(*) from member_balance_slot where member_id=?", Integer.class, MERCHANT)).isZero();
+    }
+
+    @Test
+    void creditDuringDemote() throws Exception {
+        int threads = 8;
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger credited = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                while (running.get()) {
+                    repository.credit(MERCHANT, 1);
+                    credited.incrementAndGet();
+                }
+            }));
+        }
+        //입금이 계속 들어오는 중에 promote/demote 반복
+        try {
+            for (int i = 0; i < 20; i++) {
+                admin.promote(MERCHANT, 4);
+                admin.demote(MERCHANT);
+            }
+        } finally {
+            running.set(false);
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(credited.get()).isPositive();
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(10000 + credited.get());
+    }
+
+    /**
+     * 16 스레드 동시 입금 - 입금이 모든 슬롯에 나뉘어 들어가야 한다. (한 로우에 락이 몰리지 않는다)
+     */
+    @Test
+    void creditsSpreadAcrossSlots() throws Exception {
+        int slots = 8;
+        admin.promote(MERCHANT, slots);
+        int threads = 16;
+        int creditsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < creditsPerThread; j++) {
+                    repository.credit(MERCHANT, 1);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int credits = threads * creditsPerThread;
+        assertThat(repository.findById(MERCHANT).getMoney()).isEqualTo(10000 + credits);
+        List<Integer> slotMoney = new JdbcTemplate(dataSource).queryForList(
+                "select money - case when slot = 0 then 10000 else 0 end from member_balance_slot where member_id=? order by slot",
+                Integer.class, MERCHANT);
+        assertThat(slotMoney).hasSize(slots);
+        assertThat(slotMoney).allMatch(money -> money > 0 && money < credits / 2);
+    }
+}
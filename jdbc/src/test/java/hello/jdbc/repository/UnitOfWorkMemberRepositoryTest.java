@@ -0,0 +1,131 @@
+package hello.jdbc.repository;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Slf4j
+class UnitOfWorkMemberRepositoryTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    MemberRepository directRepository;
+    UnitOfWorkMemberRepository repository;
+    TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USERNAME, PASSWORD);
+        directRepository = new MemberRepositoryV5(dataSource);
+        repository = new UnitOfWorkMemberRepository(directRepository, dataSource);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void after() {
+        directRepository.delete(MEMBER_A);
+        directRepository.delete(MEMBER_B);
+        directRepository.delete(MEMBER_EX);
+    }
+
+    @Test
+    void coalesceUpdates() {
+        repository.save(new Member(MEMBER_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.update(MEMBER_A, 9000);
+            repository.update(MEMBER_A, 8000);
+            repository.update(MEMBER_A, 7000);
+            //커밋 전에는 DB 에 반영되지 않지만 같은 트랜잭션에서는 보인다.
+            assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(7000);
+        });
+
+        assertThat(directRepository.findById(MEMBER_A).getMoney()).isEqualTo(7000);
+        assertThat(repository.getFlushedStatements()).isEqualTo(1);
+        assertThat(repository.getCoalescedUpdates()).isEqualTo(2);
+    }
+
+    @Test
+    void skipNoOpUpdate() {
+        repository.save(new Member(MEMBER_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            Member member = repository.findById(MEMBER_A);
+            repository.update(MEMBER_A, member.getMoney() + 1000);
+            repository.update(MEMBER_A, member.getMoney());
+        });
+
+        assertThat(repository.getFlushedStatements()).isZero();
+        assertThat(repository.getSkippedUpdates()).isEqualTo(1);
+    }
+
+    @Test
+    void accountTransfer() {
+        repository.save(new Member(MEMBER_A, 10000));
+        repository.save(new Member(MEMBER_B, 10000));
+        MemberServiceV4 memberService = new MemberServiceV4(repository);
+
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000));
+
+        assertThat(directRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(directRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+        assertThat(repository.getFlushedStatements()).isEqualTo(2);
+    }
+
+    @Test
+    void accountTransferEx() {
+        repository.save(new Member(MEMBER_A, 10000));
+        repository.save(new Member(MEMBER_EX, 10000));
+        MemberServiceV4 memberService = new MemberServiceV4(repository);
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(
+                status -> memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000)))
+                .isInstanceOf(IllegalStateException.class);
+
+        //롤백 시에는 flush 자체가 일어나지 않는다.
+        assertThat(repository.getFlushedStatements()).isZero();
+        assertThat(directRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    void flushMissingMember() {
+        repository.save(new Member(MEMBER_A, 10000));
+
+        //없는 회원 update 는 커밋 시점에 실패하고 트랜잭션 전체가 롤백된다.
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            repository.update(MEMBER_A, 9000);
+            repository.update(MEMBER_B, 1000);
+        })).isInstanceOf(EmptyResultDataAccessException.class)
+                .hasMessageContaining(MEMBER_B);
+
+        assertThat(directRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    void readOnlyRejectsPendingUpdates() {
+        repository.save(new Member(MEMBER_A, 10000));
+        TransactionTemplate readOnlyTx = new TransactionTemplate(txTemplate.getTransactionManager());
+        readOnlyTx.setReadOnly(true);
+
+        //변경 없는 읽기 전용 트랜잭션은 그대로 커밋
+        readOnlyTx.executeWithoutResult(status -> repository.findById(MEMBER_A));
+
+        assertThatThrownBy(() -> readOnlyTx.executeWithoutResult(status -> repository.update(MEMBER_A, 9000)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(repository.getFlushedStatements()).isZero();
+        assertThat(directRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+}
@@ -0,0 +1,132 @@
+package hello.jdbc.repository.shard;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyShardMigrationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * 샤드마다 메모리 H2 하나
+ */
+@Slf4j
+class ShardedMemberRepositoryTest {
+
+    static final int MEMBER_COUNT = 200;
+
+    List<Shard> shards = new ArrayList<>();
+    ExecutorService executor;
+    ShardedMemberRepository repository;
+
+    @BeforeEach
+    void before() {
+        for (int i = 0; i < 4; i++) {
+            shards.add(createShard("shard" + i));
+        }
+        executor = Executors.newFixedThreadPool(4);
+        repository = new ShardedMemberRepository(shards.subList(0, 3), executor);
+        for (int i = 0; i < MEMBER_COUNT; i++) {
+            repository.save(new Member(memberId(i), i));
+        }
+    }
+
+    @AfterEach
+    void after() {
+        executor.shutdown();
+        for (Shard shard : shards) {
+            shard.getTemplate().update("drop table member");
+        }
+    }
+
+    @Test
+    void distribute() {
+        for (Shard shard : shards.subList(0, 3)) {
+            Integer count = shard.getTemplate().queryForObject("select count(*) from member", Integer.class);
+            log.info("{} count={}", shard, count);
+            assertThat(count).isPositive();
+        }
+        assertThat(repository.findById(memberId(7)).getMoney()).isEqualTo(7);
+
+        repository.update(memberId(7), 700);
+        assertThat(repository.findById(memberId(7)).getMoney()).isEqualTo(700);
+    }
+
+    @Test
+    void scatterGather() {
+        Map<String, Member> members = repository.findAll(List.of(memberId(1), memberId(2), memberId(3), "none"));
+        assertThat(members).containsOnlyKeys(memberId(1), memberId(2), memberId(3));
+
+        assertThat(repository.findAll()).hasSize(MEMBER_COUNT);
+    }
+
+    @Test
+    void expand() {
+        ShardRebalancer rebalancer = new ShardRebalancer(repository);
+        long moved = rebalancer.expand(shards);
+        log.info("moved={}", moved);
+
+        //일관된 해시 - 대략 1/4 만 이동
+        assertThat(moved).isPositive().isLessThan(MEMBER_COUNT / 2);
+        assertThat(repository.findAll()).hasSize(MEMBER_COUNT);
+        for (int i = 0; i < MEMBER_COUNT; i++) {
+            String memberId = memberId(i);
+            Shard owner = repository.shardFor(memberId);
+            Integer money = owner.getTemplate()
+                    .queryForObject("select money from member where member_id=?", Integer.class, memberId);
+            assertThat(money).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void resumeReconcilesDuplicates() {
+        ShardRing oldRing = repository.beginMigration(shards);
+        //이동 중 원본 삭제 전에 실패한 상태 - 대상 복사본에만 이후 쓰기가 반영됨
+        String memberId = null;
+        Shard source = null;
+        Shard target = null;
+        for (int i = 0; memberId == null; i++) {
+            if (oldRing.shardFor(memberId(i)) != repository.shardFor(memberId(i))) {
+                memberId = memberId(i);
+                source = oldRing.shardFor(memberId);
+                target = repository.shardFor(memberId);
+            }
+        }
+        target.getTemplate().update("insert into member(member_id, money) values (?, ?)", memberId, 999);
+
+        assertThat(repository.findAll()).hasSize(MEMBER_COUNT)
+                .contains(new Member(memberId, 999));
+        assertThatThrownBy(() -> repository.executeWithoutMigration(() -> null))
+                .isInstanceOf(MyShardMigrationException.class);
+
+        new ShardRebalancer(repository).resume();
+
+        assertThat(source.getTemplate().queryForObject(
+                "select count(*) from member where member_id=?", Integer.class, memberId)).isZero();
+        assertThat(repository.findById(memberId).getMoney()).isEqualTo(999);
+        assertThat(repository.findAll()).hasSize(MEMBER_COUNT);
+        assertThat(repository.isMigrating()).isFalse();
+    }
+
+    private static String memberId(int i) {
+        return "member" + i;
+    }
+
+    private static Shard createShard(String name) {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        Shard shard = new Shard(name, dataSource);
+        shard.getTemplate().update("create table member (member_id varchar(10) primary key, money integer not null default 0)");
+        return shard;
+    }
+}
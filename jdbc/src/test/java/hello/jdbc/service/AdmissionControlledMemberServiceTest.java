@@ -0,0 +1,200 @@
+package hello.jdbc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.ex.MyOverloadException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * DB 를 쓰는 테스트는 공용 설정(MemberServiceTestConfig)과 테스트 트랜잭션 롤백으로 정리한다.
+ * 나머지는 DB 없이 ConcurrencyLimiter 만 확인한다.
+ */
+@Slf4j
+@SpringBootTest
+@Import(MemberServiceTestConfig.class)
+@Transactional
+class AdmissionControlledMemberServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberServiceV4 memberService;
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void transferAndRead() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 50, 2.0, 0.9);
+        AdmissionControlledMemberService service = new AdmissionControlledMemberService(limiter, memberService, memberRepository);
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+
+        service.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(service.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(limiter.getAccepted(RequestPriority.TRANSFER)).isEqualTo(1);
+        assertThat(limiter.getAccepted(RequestPriority.READ)).isEqualTo(1);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    void readsShedBeforeTransfers() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 50, 1000.0, 0.9);
+        CountDownLatch started = new CountDownLatch(7);
+        CountDownLatch release = new CountDownLatch(1);
+
+        //조회 몫(70%) 7개를 붙잡아 둔다
+        for (int i = 0; i < 7; i++) {
+            executor.submit(() -> limiter.run(RequestPriority.READ, () -> {
+                started.countDown();
+                await(release);
+            }));
+        }
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> limiter.run(RequestPriority.READ, () -> { }))
+                .isInstanceOf(MyOverloadException.class);
+        limiter.run(RequestPriority.TRANSFER, () -> { });
+
+        release.countDown();
+        assertThat(limiter.getRejected(RequestPriority.READ)).isEqualTo(1);
+        assertThat(limiter.getRejected(RequestPriority.TRANSFER)).isZero();
+    }
+
+    @Test
+    void limitDecreasesWhenSlow() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 50, 2.0, 0.5);
+        limiter.run(RequestPriority.TRANSFER, () -> { });
+        limiter.run(RequestPriority.TRANSFER, () -> sleep(20));
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void slowBurstDecreasesOnce() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 50, 2.0, 0.5);
+        limiter.run(RequestPriority.TRANSFER, () -> { });
+        CountDownLatch started = new CountDownLatch(4);
+
+        //같은 한도에서 시작한 느린 요청 4개는 한 번만 줄인다
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> limiter.run(RequestPriority.TRANSFER, () -> {
+                started.countDown();
+                await(started);
+                sleep(20);
+            })));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void minLatencyExpires() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 50, 2.0, 0.5, Duration.ofMillis(20));
+        limiter.run(RequestPriority.TRANSFER, () -> { });
+        sleep(50);
+
+        //창 두 개가 지나면 예전의 빠른 응답은 기준이 아니다
+        limiter.run(RequestPriority.TRANSFER, () -> sleep(5));
+        limiter.run(RequestPriority.TRANSFER, () -> sleep(5));
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    /**
+     * 과부하 벤치마크 - 동시 실행 수에 비례해서 느려지는 DB 를 흉내낸다. (1개당 2ms)
+     * 20ms 안에 끝난 요청만 goodput 으로 센다.
+     * 한도가 없으면 16개가 동시에 돌아서 대부분 32ms 가 걸린다.
+     */
+    @Test
+    void goodputUnderOverload() throws Exception {
+        long unlimited = goodput(null);
+        long limited = goodput(new ConcurrencyLimiter(4, 1, 16, 3.0, 0.9));
+        log.info("goodput unlimited={} limited={}", unlimited, limited);
+        assertThat(limited).isGreaterThan(unlimited);
+    }
+
+    private long goodput(ConcurrencyLimiter limiter) throws Exception {
+        AtomicInteger inflight = new AtomicInteger();
+        AtomicLong good = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Runnable work = () -> {
+            int n = inflight.incrementAndGet();
+            try {
+                sleep(2L * n);
+            } finally {
+                inflight.decrementAndGet();
+            }
+        };
+
+        CountDownLatch done = new CountDownLatch(16);
+        for (int i = 0; i < 16; i++) {
+            executor.submit(() -> {
+                while (running.get()) {
+                    long start = System.nanoTime();
+                    try {
+                        if (limiter == null) {
+                            work.run();
+                        } else {
+                            limiter.run(RequestPriority.TRANSFER, work);
+                        }
+                        if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(20)) {
+                            good.incrementAndGet();
+                        }
+                    } catch (MyOverloadException e) {
+                        sleep(1);
+                    }
+                }
+                done.countDown();
+            });
+        }
+        Thread.sleep(500);
+        running.set(false);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        return good.get();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package hello.jdbc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * DataSource, 트랜잭션 매니저는 공용 자동 구성을 쓰고 스냅샷 서비스와 추적하는 MemberServiceV4 만 더한다.
+ * 커밋 후 발행과 갱신 스레드를 확인해야 해서 롤백 대신 이 테스트가 만든 회원만 지운다.
+ * 공용 member 테이블에 다른 행이 있어도 되도록 회원 수, 잔액 합은 시작 스냅샷 기준으로 비교한다.
+ */
+@Slf4j
+@SpringBootTest
+class BalanceSnapshotServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    MemberRepositoryV5 memberRepository;
+    @Autowired
+    MemberServiceV4 memberService;
+    @Autowired
+    BalanceSnapshotService snapshotService;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    int members;
+    long totalMoney;
+
+    @TestConfiguration
+    static class TestConfig {
+        private final DataSource dataSource;
+
+        TestConfig(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Bean
+        MemberRepositoryV5 memberRepositoryV5() {
+            return new MemberRepositoryV5(dataSource);
+        }
+
+        @Bean(destroyMethod = "close")
+        BalanceSnapshotService balanceSnapshotService() {
+            return new BalanceSnapshotService(dataSource, Duration.ofSeconds(10));
+        }
+
+        @Bean
+        MemberServiceV4 memberServiceV4() {
+            return new MemberServiceV4(balanceSnapshotService().track(memberRepositoryV5()));
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+        BalanceSnapshot initial = snapshotService.refresh();
+        members = initial.size();
+        totalMoney = initial.getTotalMoney();
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+        memberRepository.delete(MEMBER_EX);
+    }
+
+    @Test
+    @DisplayName("커밋된 이체는 한 버전으로 반영된다")
+    void publishOnCommit() {
+        BalanceSnapshot before = snapshotService.current();
+
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        BalanceSnapshot after = snapshotService.current();
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(after.get(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(after.get(MEMBER_B).getMoney()).isEqualTo(12000);
+        assertThat(after.getTotalMoney()).isEqualTo(totalMoney);
+        //이전 스냅샷은 그대로
+        assertThat(before.get(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("롤백된 이체는 반영되지 않는다")
+    void discardOnRollback() {
+        BalanceSnapshot before = snapshotService.current();
+
+        assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        BalanceSnapshot after = snapshotService.current();
+        assertThat(after).isSameAs(before);
+        assertThat(after.get(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("없는 회원 update 는 기록하지 않는다")
+    void updateMissingMember() {
+        MemberRepository tracked = snapshotService.track(memberRepository);
+        BalanceSnapshot before = snapshotService.current();
+
+        tracked.update("nobody", 100);
+
+        BalanceSnapshot after = snapshotService.current();
+        assertThat(after).isSameAs(before);
+        assertThat(after.get("nobody")).isNull();
+        assertThat(after.size()).isEqualTo(members);
+    }
+
+    @Test
+    @DisplayName("다시 읽어도 아직 끝나지 않은 변경 이후의 삭제 표시는 남는다")
+    void refreshKeepsTombstone() throws Exception {
+        MemberRepository tracked = snapshotService.track(memberRepository);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                //커밋 전 변경이 순번을 잡고 있는 동안 다른 트랜잭션의 삭제가 발행된다
+                tracked.update(MEMBER_A, 9000);
+                try {
+                    executor.submit(() -> tracked.delete(MEMBER_B)).get();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                BalanceSnapshot refreshed = snapshotService.refresh();
+                assertThat(refreshed.entries().containsKey(MEMBER_B)).isTrue();
+                assertThat(refreshed.get(MEMBER_B)).isNull();
+            });
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(snapshotService.current().get(MEMBER_A).getMoney()).isEqualTo(9000);
+        assertThat(snapshotService.current().size()).isEqualTo(members - 1);
+    }
+
+    @Test
+    @DisplayName("maxStaleness 가 지나면 다시 읽는다")
+    void stalenessBound() throws InterruptedException {
+        BalanceSnapshotService service = new BalanceSnapshotService(dataSource, Duration.ofMillis(100));
+        assertThat(service.current().get(MEMBER_A).getMoney()).isEqualTo(10000);
+
+        //track() 을 거치지 않은 쓰기
+        memberRepository.update(MEMBER_A, 1);
+        assertThat(service.current().get(MEMBER_A).getMoney()).isEqualTo(10000);
+
+        Thread.sleep(150);
+        assertThat(service.current().get(MEMBER_A).getMoney()).isEqualTo(1);
+        assertThat(service.getReloads()).isEqualTo(2);
+    }
+
+    /**
+     * MemberServiceV4 가 이체하는 동안 스냅샷 조회 (참고용 처리량, JMH 대신)
+     * 어느 스냅샷을 읽어도 두 회원 잔액 합은 같아야 한다.
+     */
+    @Test
+    @DisplayName("이체 중 동시 조회 - 일관된 시점")
+    void concurrentReads() throws Exception {
+        int transfers = 300;
+        int readers = 4;
+        snapshotService.startRefresh(Duration.ofMillis(20));
+
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            results.add(executor.submit(() -> {
+                long reads = 0;
+                while (writing.get()) {
+                    BalanceSnapshot snapshot = snapshotService.current();
+                    int sum = snapshot.get(MEMBER_A).getMoney() + snapshot.get(MEMBER_B).getMoney();
+                    assertThat(sum).isEqualTo(20000);
+                    assertThat(snapshot.getTotalMoney()).isEqualTo(totalMoney);
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < transfers; i++) {
+                if (i % 2 == 0) {
+                    memberService.accountTransfer(MEMBER_A, MEMBER_B, 10);
+                } else {
+                    memberService.accountTransfer(MEMBER_B, MEMBER_A, 30);
+                }
+            }
+        } finally {
+            writing.set(false);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long reads = 0;
+        for (Future<Long> result : results) {
+            reads += result.get();
+        }
+        executor.shutdown();
+        snapshotService.close();
+
+        log.info("transfers={}/s reads={}/s reloads={} publishes={}",
+                transfers * 1_000_000_000L / elapsed, reads * 1_000_000_000L / elapsed,
+                snapshotService.getReloads(), snapshotService.getPublishes());
+
+        BalanceSnapshot snapshot = snapshotService.current();
+        assertThat(snapshot.get(MEMBER_A).getMoney()).isEqualTo(memberRepository.findById(MEMBER_A).getMoney());
+        assertThat(snapshot.get(MEMBER_B).getMoney()).isEqualTo(memberRepository.findById(MEMBER_B).getMoney());
+        assertThat(snapshot.get(MEMBER_A).getMoney()).isEqualTo(10000 + transfers / 2 * 20);
+    }
+}
@@ -0,0 +1,100 @@
+package hello.jdbc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 테스트마다 트랜잭션을 롤백해서 데이터를 정리한다.
+ * 커밋되지 않으므로 LRU 캐시는 비어 있고, 중복 확인은 블룸 필터 -> DB 조회 경로를 탄다.
+ */
+@Slf4j
+@SpringBootTest
+@Import(MemberServiceTestConfig.class)
+@Transactional
+class IdempotentMemberServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    IdempotencyStore idempotencyStore;
+    @Autowired
+    IdempotentMemberService memberService;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    TransactionTemplate nestedTx;
+
+    @BeforeEach
+    void before() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+        //예외 이체는 savepoint 로 감싸서 테스트 트랜잭션은 그대로 두고 이체만 롤백한다
+        nestedTx = new TransactionTemplate(transactionManager);
+        nestedTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    @Test
+    @DisplayName("같은 키로 재시도하면 한 번만 이체")
+    void retryWithSameKey() {
+        assertThat(memberService.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000)).isTrue();
+        assertThat(memberService.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000)).isFalse();
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("이체가 롤백되면 같은 키로 다시 시도할 수 있다")
+    void retryAfterRollback() {
+        assertThatThrownBy(() -> nestedTx.executeWithoutResult(
+                status -> memberService.accountTransfer("key-ex", MEMBER_A, MEMBER_EX, 2000)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+
+        //블룸 필터에는 남아있지만(오탐) DB 에는 없으므로 새 키로 판단
+        assertThat(idempotencyStore.isDuplicate("key-ex")).isFalse();
+    }
+
+    @Test
+    @DisplayName("새 키는 DB 조회 없이 통과")
+    void newKeyWithoutDbLookup() {
+        long dbLookups = idempotencyStore.getDbLookups();
+        for (int i = 0; i < 100; i++) {
+            memberService.accountTransfer("new-" + i, MEMBER_A, MEMBER_B, 1);
+        }
+        log.info("lookups={}, cacheHits={}, bloomSkips={}, dbLookups={}, avgLookupNanos={}",
+                idempotencyStore.getLookups(), idempotencyStore.getCacheHits(), idempotencyStore.getBloomSkips(),
+                idempotencyStore.getDbLookups(), idempotencyStore.getAverageLookupNanos());
+        //오탐률 1% - 100건 중 DB 조회는 거의 없다.
+        assertThat(idempotencyStore.getDbLookups() - dbLookups).isLessThan(10);
+    }
+
+    @Test
+    @DisplayName("TTL 이 지난 키는 삭제")
+    void compact() {
+        memberService.accountTransfer("old-key", MEMBER_A, MEMBER_B, 1000);
+        assertThat(idempotencyStore.isDuplicate("old-key")).isTrue();
+
+        assertThat(idempotencyStore.compact(Duration.ZERO.minusSeconds(1))).isEqualTo(1);
+        assertThat(idempotencyStore.isDuplicate("old-key")).isFalse();
+    }
+}
@@ -0,0 +1,128 @@
+package hello.jdbc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.TransferLedgerRepository;
+import java.time.Duration;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 테스트마다 트랜잭션을 롤백해서 데이터를 정리한다. (materializer 도 같은 트랜잭션에 참여)
+ */
+@Slf4j
+@SpringBootTest
+@Import(MemberServiceTestConfig.class)
+@Transactional
+class LedgerTransferServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    LedgerTransferService ledgerTransferService;
+    @Autowired
+    LedgerMaterializer materializer;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    TransferLedgerRepository ledgerRepository;
+    @Autowired
+    DataSource dataSource;
+    TransactionTemplate nestedTx;
+
+    @BeforeEach
+    void before() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+        //예외 이체는 savepoint 로 감싸서 테스트 트랜잭션은 그대로 두고 이체만 롤백한다
+        nestedTx = new TransactionTemplate(transactionManager);
+        nestedTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    @Test
+    @DisplayName("정상 이체 - 반영 전후 잔액이 같다")
+    void accountTransfer() {
+        ledgerTransferService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+        ledgerTransferService.accountTransfer(MEMBER_A, MEMBER_B, 1000);
+
+        //아직 member 로우는 그대로
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(ledgerTransferService.findBalance(MEMBER_A)).isEqualTo(7000);
+        assertThat(ledgerTransferService.findBalance(MEMBER_B)).isEqualTo(13000);
+
+        assertThat(materializer.drain()).isEqualTo(4);
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(7000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(13000);
+        assertThat(ledgerTransferService.findBalance(MEMBER_A)).isEqualTo(7000);
+        assertThat(materializer.drain()).isZero();
+    }
+
+    @Test
+    @DisplayName("이체 중 예외 발생 - 원장이 남지 않는다")
+    void accountTransferEx() {
+        assertThatThrownBy(() -> nestedTx.executeWithoutResult(
+                status -> ledgerTransferService.accountTransfer(MEMBER_A, MEMBER_EX, 2000)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(materializer.drain()).isZero();
+        assertThat(ledgerTransferService.findBalance(MEMBER_A)).isEqualTo(10000);
+        assertThat(ledgerTransferService.findBalance(MEMBER_EX)).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("커밋되지 않은 seq 빈자리 앞까지만 반영")
+    void stopAtGap() {
+        LedgerMaterializer strict = new LedgerMaterializer(ledgerRepository, new MemberRepositoryV5(dataSource),
+                transactionManager, 100, Duration.ofMinutes(1));
+        ledgerTransferService.accountTransfer(MEMBER_A, MEMBER_B, 1000);
+        materializer.drain(); //이전 테스트가 남긴 빈자리까지 정리
+
+        ledgerTransferService.accountTransfer(MEMBER_A, MEMBER_B, 1000);
+        //다음 seq 하나를 비워 두고 그 뒤에 추가 - 빈자리는 아직 커밋되지 않은 원장으로 본다
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        long lastSeq = template.queryForObject("select max(seq) from transfer_ledger", Long.class);
+        template.update("insert into transfer_ledger(seq, member_id, delta) values (?, ?, ?)", lastSeq + 2, MEMBER_B, 500);
+
+        assertThat(strict.drain()).isEqualTo(2);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+        assertThat(ledgerTransferService.findBalance(MEMBER_B)).isEqualTo(12500);
+
+        //빈자리가 롤백된 것으로 판단되면 건너뛴다
+        assertThat(materializer.drain()).isEqualTo(1);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12500);
+        strict.close();
+    }
+
+    @Test
+    @DisplayName("배치 크기보다 많은 원장 반영")
+    void drainInBatches() {
+        for (int i = 0; i < 150; i++) {
+            ledgerTransferService.accountTransfer(MEMBER_A, MEMBER_B, 10);
+        }
+        assertThat(materializer.drain()).isEqualTo(300);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8500);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(11500);
+    }
+}
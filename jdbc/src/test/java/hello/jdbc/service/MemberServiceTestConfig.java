@@ -0,0 +1,86 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.IdempotencyKeyRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV3;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.TransferLedgerRepository;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 서비스 테스트 공용 설정 - 같은 설정을 @Import 하는 테스트는 스프링 컨텍스트를 한 번만 띄운다.
+ * DataSource, 트랜잭션 매니저는 스프링 부트 자동 구성 (mem 프로필이면 임베디드 H2)
+ * 원장/멱등성 키 테이블과 이체 저장 함수는 여기서 한 번 만든다. (H2 DDL 은 커밋되므로 테스트 트랜잭션 안에서 만들면 롤백이 깨진다)
+ */
+@TestConfiguration
+public class MemberServiceTestConfig {
+
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+
+    public MemberServiceTestConfig(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+        new ResourceDatabasePopulator(
+                new ClassPathResource("sql/transfer_ledger.sql"),
+                new ClassPathResource("sql/transfer_idempotency.sql"),
+                new ClassPathResource("sql/transfer_procedure.sql")).execute(dataSource);
+    }
+
+    @Bean
+    MemberRepositoryV3 memberRepositoryV3() {
+        return new MemberRepositoryV3(dataSource);
+    }
+
+    @Bean
+    MemberServiceV3_3 memberServiceV3_3() {
+        return new MemberServiceV3_3(memberRepositoryV3());
+    }
+
+    @Bean
+    MemberRepository memberRepository() {
+//      return new MemberRepositoryV4_1(dataSource);
+//      return new MemberRepositoryV4_2(dataSource);
+        return new MemberRepositoryV5(dataSource);
+    }
+
+    @Bean
+    MemberServiceV4 memberServiceV4() {
+        return new MemberServiceV4(memberRepository());
+    }
+
+    @Bean
+    TransferLedgerRepository transferLedgerRepository() {
+        return new TransferLedgerRepository(dataSource);
+    }
+
+    @Bean
+    LedgerTransferService ledgerTransferService() {
+        return new LedgerTransferService(transferLedgerRepository());
+    }
+
+    /**
+     * 테스트는 롤백하므로 체크포인트 뒤에 롤백된 seq 빈자리가 남는다. 기다리지 않고 바로 건너뛴다.
+     */
+    @Bean(destroyMethod = "close")
+    LedgerMaterializer ledgerMaterializer() {
+        return new LedgerMaterializer(transferLedgerRepository(), new MemberRepositoryV5(dataSource), transactionManager,
+                100, Duration.ZERO);
+    }
+
+    @Bean
+    IdempotencyStore idempotencyStore() {
+        return new IdempotencyStore(new IdempotencyKeyRepository(dataSource), 10_000, 1_000_000, 0.01);
+    }
+
+    @Bean
+    IdempotentMemberService idempotentMemberService() {
+        return new IdempotentMemberService(idempotencyStore(), memberServiceV4());
+    }
+}
@@ -3,31 +3,31 @@ package hello.jdbc.service;
 import hello.jdbc.domain.Member;
 import hello.jdbc.repository.MemberRepositoryV3;
 import lombok.extern.slf4j.Slf4j;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.context.TestConfiguration;
-import org.springframework.context.annotation.Bean;
-import org.springframework.jdbc.datasource.DataSourceTransactionManager;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.context.annotation.Import;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.sql.DataSource;
 import java.sql.SQLException;
 
-import static hello.jdbc.connection.ConnectionConst.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * 트랜잭션 - @Transactional AOP
+ * 테스트마다 트랜잭션을 롤백해서 데이터를 정리한다.
  */
 
 @Slf4j
 @SpringBootTest
+@Import(MemberServiceTestConfig.class)
+@Transactional
 class MemberServiceV3_3Test {
 
     public static final String MEMBER_A = "memberA";
@@ -38,35 +38,15 @@ class MemberServiceV3_3Test {
     private MemberRepositoryV3 memberRepository;
     @Autowired
     private MemberServiceV3_3 memberService;
-
-    @TestConfiguration
-    static class TestConfig {
-        @Bean
-        DataSource dataSource() {
-            return new DriverManagerDataSource(URL, USERNAME, PASSWORD);
-        }
-
-        @Bean
-        PlatformTransactionManager transactionManager() {
-            return new DataSourceTransactionManager(dataSource());
-        }
-
-        @Bean
-        MemberRepositoryV3 memberRepositoryV3() {
-            return new MemberRepositoryV3(dataSource());
-        }
-
-        @Bean
-        MemberServiceV3_3 memberServiceV3_3() {
-            return new MemberServiceV3_3(memberRepositoryV3());
-        }
-    }
-
-    @AfterEach
-    void after() throws SQLException {
-        memberRepository.delete(MEMBER_A);
-        memberRepository.delete(MEMBER_B);
-        memberRepository.delete(MEMBER_EX);
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private TransactionTemplate nestedTx;
+
+    @BeforeEach
+    void before() {
+        //예외 이체는 savepoint 로 감싸서 테스트 트랜잭션은 그대로 두고 이체만 롤백한다
+        nestedTx = new TransactionTemplate(transactionManager);
+        nestedTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
     }
 
     @Test
@@ -99,7 +79,8 @@ class MemberServiceV3_3Test {
         memberRepository.save(memberEx);
 
         //when
-        assertThatThrownBy(() -> memberService.accountTransfer(memberA.getMemberId(), memberEx.getMemberId(), 2000))
+        assertThatThrownBy(() -> nestedTx.executeWithoutResult(
+                status -> accountTransfer(memberA.getMemberId(), memberEx.getMemberId(), 2000)))
                 .isInstanceOf(IllegalStateException.class);
 
         //then
@@ -108,4 +89,12 @@ class MemberServiceV3_3Test {
         assertThat(findMemberA.getMoney()).isEqualTo(10000);
         assertThat(findMemberEx.getMoney()).isEqualTo(10000);
     }
-}
\ No newline at end of file
+
+    private void accountTransfer(String fromId, String toId, int money) {
+        try {
+            memberService.accountTransfer(fromId, toId, money);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -5,28 +5,30 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import hello.jdbc.domain.Member;
 import hello.jdbc.repository.MemberRepository;
-import hello.jdbc.repository.MemberRepositoryV4_1;
-import hello.jdbc.repository.MemberRepositoryV4_2;
-import hello.jdbc.repository.MemberRepositoryV5;
-import javax.sql.DataSource;
 import lombok.extern.slf4j.Slf4j;
-import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.context.TestConfiguration;
-import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * 예외 누수 문제 해결
  * SQLException 제거
  *
  * MemberRepository 인터페이스 의존
+ * 테스트마다 트랜잭션을 롤백해서 데이터를 정리한다.
  */
 
 @Slf4j
 @SpringBootTest
+@Import(MemberServiceTestConfig.class)
+@Transactional
 class MemberServiceV4Test {
 
     public static final String MEMBER_A = "memberA";
@@ -37,33 +39,15 @@ class MemberServiceV4Test {
     private MemberRepository memberRepository;
     @Autowired
     private MemberServiceV4 memberService;
-
-    @TestConfiguration
-    static class TestConfig {
-        private final DataSource dataSource;
-
-        public TestConfig(DataSource dataSource) {
-            this.dataSource = dataSource;
-        }
-
-        @Bean
-        MemberRepository memberRepository() {
-//          return new MemberRepositoryV4_1(dataSource);
-//          return new MemberRepositoryV4_2(dataSource);
-            return new MemberRepositoryV5(dataSource);
-        }
-
-        @Bean
-        MemberServiceV4 memberServiceV4() {
-            return new MemberServiceV4(memberRepository());
-        }
-    }
-
-    @AfterEach
-    void after() {
-        memberRepository.delete(MEMBER_A);
-        memberRepository.delete(MEMBER_B);
-        memberRepository.delete(MEMBER_EX);
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private TransactionTemplate nestedTx;
+
+    @BeforeEach
+    void before() {
+        //예외 이체는 savepoint 로 감싸서 테스트 트랜잭션은 그대로 두고 이체만 롤백한다
+        nestedTx = new TransactionTemplate(transactionManager);
+        nestedTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
     }
 
     @Test
@@ -96,7 +80,8 @@ class MemberServiceV4Test {
         memberRepository.save(memberEx);
 
         //when
-        assertThatThrownBy(() -> memberService.accountTransfer(memberA.getMemberId(), memberEx.getMemberId(), 2000))
+        assertThatThrownBy(() -> nestedTx.executeWithoutResult(
+                status -> memberService.accountTransfer(memberA.getMemberId(), memberEx.getMemberId(), 2000)))
                 .isInstanceOf(IllegalStateException.class);
 
         //then
@@ -105,4 +90,40 @@ class MemberServiceV4Test {
         assertThat(findMemberA.getMoney()).isEqualTo(10000);
         assertThat(findMemberEx.getMoney()).isEqualTo(10000);
     }
+
+    @Test
+    @DisplayName("정상 이체 - 이체 후 잔액 반환")
+    void accountTransferReturning() {
+        //given
+        Member memberA = new Member(MEMBER_A, 10000);
+        Member memberB = new Member(MEMBER_B, 10000);
+        memberRepository.save(memberA);
+        memberRepository.save(memberB);
+
+        //when
+        TransferBalances balances = memberService.accountTransferReturning(memberA.getMemberId(), memberB.getMemberId(), 2000);
+
+        //then - 추가 조회 없이 확인
+        assertThat(balances.getFromMember().getMoney()).isEqualTo(8000);
+        assertThat(balances.getToMember().getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("이체 후 잔액 반환 중 예외 발생")
+    void accountTransferReturningEx() {
+        //given
+        Member memberA = new Member(MEMBER_A, 10000);
+        Member memberEx = new Member(MEMBER_EX, 10000);
+        memberRepository.save(memberA);
+        memberRepository.save(memberEx);
+
+        //when
+        assertThatThrownBy(() -> nestedTx.executeWithoutResult(
+                status -> memberService.accountTransferReturning(memberA.getMemberId(), memberEx.getMemberId(), 2000)))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        Member findMemberA = memberRepository.findById(memberA.getMemberId());
+        assertThat(findMemberA.getMoney()).isEqualTo(10000);
+    }
 }
\ No newline at end of file
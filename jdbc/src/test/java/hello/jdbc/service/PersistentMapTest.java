@@ -0,0 +1,56 @@
+package hello.jdbc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PersistentMapTest {
+
+    @Test
+    void putKeepsOldVersion() {
+        PersistentMap<String, Integer> before = PersistentMap.of(Map.of("memberA", 1, "memberB", 2));
+        PersistentMap<String, Integer> after = before.put("memberA", 10).put("memberC", 3);
+
+        assertThat(before.get("memberA")).isEqualTo(1);
+        assertThat(before.get("memberC")).isNull();
+        assertThat(after.get("memberA")).isEqualTo(10);
+        assertThat(after.get("memberB")).isEqualTo(2);
+        assertThat(after.get("memberC")).isEqualTo(3);
+    }
+
+    @Test
+    void sameHashCode() {
+        //"Aa".hashCode() == "BB".hashCode()
+        PersistentMap<String, Integer> map = PersistentMap.of(Map.of("Aa", 1));
+        PersistentMap<String, Integer> both = map.put("BB", 2).put("Aa", 3);
+
+        assertThat(map.get("BB")).isNull();
+        assertThat(both.get("Aa")).isEqualTo(3);
+        assertThat(both.get("BB")).isEqualTo(2);
+    }
+
+    @Test
+    void sameAsHashMap() {
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            expected.put("member" + i, i);
+        }
+        PersistentMap<String, Integer> map = PersistentMap.of(expected);
+
+        Random random = new Random(1);
+        for (int i = 0; i < 50000; i++) {
+            String memberId = "member" + random.nextInt(20000);
+            map = map.put(memberId, i);
+            expected.put(memberId, i);
+        }
+
+        PersistentMap<String, Integer> last = map;
+        Map<String, Integer> actual = new HashMap<>();
+        last.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        expected.forEach((memberId, value) -> assertThat(last.get(memberId)).isEqualTo(value));
+    }
+}
@@ -0,0 +1,104 @@
+package hello.jdbc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 저장 함수는 공용 설정(MemberServiceTestConfig)에서 등록한다.
+ * 저장 함수는 호출한 세션의 트랜잭션 안에서 실행되므로 테스트 트랜잭션 롤백으로 정리된다.
+ */
+@Slf4j
+@SpringBootTest
+@Import(MemberServiceTestConfig.class)
+@Transactional
+class ProcedureTransferServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    MemberServiceV4 memberService;
+    MemberRepositoryV5 memberRepository;
+    ProcedureTransferService procedureService;
+
+    @BeforeEach
+    void before() {
+        memberRepository = new MemberRepositoryV5(dataSource);
+        procedureService = new ProcedureTransferService(memberRepository);
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+    }
+
+    @Test
+    @DisplayName("정상 이체")
+    void accountTransfer() {
+        procedureService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("이체 중 예외 발생 - 변경 없음")
+    void accountTransferEx() {
+        assertThatThrownBy(() -> procedureService.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("잔액 부족, 없는 회원")
+    void statusCodes() {
+        assertThatThrownBy(() -> procedureService.accountTransfer(MEMBER_A, MEMBER_B, 20000))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> procedureService.accountTransfer(MEMBER_A, "none", 2000))
+                .isInstanceOf(EmptyResultDataAccessException.class);
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    /**
+     * 왕복 횟수 비교용 - mem DB 라 네트워크 비용은 빠져 있다.
+     * 테스트 트랜잭션 안에서 돌기 때문에 양쪽 모두 커밋 비용도 빠져 있다.
+     * TCP 비교는 -Dspring.profiles.active=default 로 돌리고 H2 서버 클래스패스에 이 프로젝트를 추가한다.
+     */
+    @Test
+    void latency() {
+        int count = 500;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            memberService.accountTransferReturning(MEMBER_A, MEMBER_B, 1);
+        }
+        long v4Nanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            procedureService.accountTransfer(MEMBER_B, MEMBER_A, 1);
+        }
+        long callNanos = System.nanoTime() - start;
+
+        log.info("MemberServiceV4 avg={}us, call avg={}us", v4Nanos / count / 1000, callNanos / count / 1000);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000);
+    }
+}
@@ -0,0 +1,167 @@
+package hello.jdbc.service;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.ReactiveMemberRepository;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * R2DBC 도 같은 JVM 의 임베디드 H2 라서 ConnectionConst.MEM_URL 과 같은 mem:test DB 를 연다. (schema.sql 로 초기화)
+ * 정리는 이 테스트가 만든 회원만 지운다.
+ * 블로킹 쪽 HikariDataSource 와 비교할 수 있게 r2dbc-pool 로 같은 크기(POOL_SIZE)의 커넥션 풀을 쓴다.
+ */
+@Slf4j
+class ReactiveMemberServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+    static final String H2_OPTIONS = "DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+    static final int POOL_SIZE = 16;
+
+    ConnectionPool connectionPool;
+    ReactiveMemberRepository memberRepository;
+    ReactiveMemberService memberService;
+
+    @BeforeEach
+    void before() {
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, "h2")
+                .option(ConnectionFactoryOptions.PROTOCOL, "mem")
+                .option(ConnectionFactoryOptions.DATABASE, "test")
+                .option(ConnectionFactoryOptions.USER, USERNAME)
+                .option(ConnectionFactoryOptions.PASSWORD, PASSWORD)
+                .option(Option.valueOf("options"), H2_OPTIONS)
+                .build()))
+                .maxSize(POOL_SIZE)
+                .build());
+        memberRepository = new ReactiveMemberRepository(connectionPool);
+        TransactionalOperator operator = TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+        memberService = new ReactiveMemberService(memberRepository, operator);
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(MEMBER_A)
+                .then(memberRepository.delete(MEMBER_B))
+                .then(memberRepository.delete(MEMBER_EX))
+                .block();
+        connectionPool.dispose();
+    }
+
+    @Test
+    @DisplayName("정상 이체")
+    void accountTransfer() {
+        memberRepository.save(new Member(MEMBER_A, 10000))
+                .then(memberRepository.save(new Member(MEMBER_B, 10000)))
+                .block();
+
+        StepVerifier.create(memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000))
+                .verifyComplete();
+
+        StepVerifier.create(memberRepository.findById(MEMBER_A).map(Member::getMoney))
+                .expectNext(8000)
+                .verifyComplete();
+        StepVerifier.create(memberRepository.findById(MEMBER_B).map(Member::getMoney))
+                .expectNext(12000)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("이체 중 예외 발생 - 롤백")
+    void accountTransferEx() {
+        memberRepository.save(new Member(MEMBER_A, 10000))
+                .then(memberRepository.save(new Member(MEMBER_EX, 10000)))
+                .block();
+
+        StepVerifier.create(memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .verifyError(IllegalStateException.class);
+
+        StepVerifier.create(memberRepository.findById(MEMBER_A).map(Member::getMoney))
+                .expectNext(10000)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("예외 변환 - MemberRepositoryV5 와 같은 스프링 예외")
+    void exceptionTranslation() {
+        StepVerifier.create(memberRepository.findById("none"))
+                .verifyError(EmptyResultDataAccessException.class);
+
+        memberRepository.save(new Member(MEMBER_A, 10000)).block();
+        StepVerifier.create(memberRepository.save(new Member(MEMBER_A, 10000)))
+                .expectError(DataIntegrityViolationException.class)
+                .verify();
+    }
+
+    /**
+     * 동시 조회 1000건 - 블로킹(MemberRepositoryV5)은 요청당 스레드, 리액티브는 구독만 늘어난다.
+     * 양쪽 모두 커넥션 POOL_SIZE 개, 동시 요청 256개로 맞춘다.
+     * r2dbc-h2 는 내부에서 블로킹 H2 호출을 그대로 실행하므로 DB 쪽 처리 시간 차이는 기대하지 않는다. (스레드 수 비교용)
+     */
+    @Test
+    void concurrentReads() throws Exception {
+        memberRepository.save(new Member(MEMBER_A, 10000)).block();
+        int requests = 1000;
+        int threadsBefore = Thread.activeCount();
+
+        long start = System.nanoTime();
+        Long count = Flux.range(0, requests)
+                .flatMap(i -> memberRepository.findById(MEMBER_A), 256)
+                .count()
+                .block();
+        long reactiveNanos = System.nanoTime() - start;
+        int reactiveThreads = Thread.activeCount() - threadsBefore;
+
+        //커넥션 수가 비교 조건이라 블로킹 쪽도 전용 풀을 만든다 (같은 mem:test DB 의 같은 회원을 읽는다)
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(MEM_URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        dataSource.setMaximumPoolSize(POOL_SIZE);
+        MemberRepositoryV5 blockingRepository = new MemberRepositoryV5(dataSource);
+
+        ExecutorService executor = Executors.newFixedThreadPool(256);
+        start = System.nanoTime();
+        List<Future<Member>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> blockingRepository.findById(MEMBER_A)));
+        }
+        //조회 실패도 드러나도록 결과를 모두 꺼낸다
+        for (Future<Member> future : futures) {
+            assertThat(future.get(30, TimeUnit.SECONDS).getMoney()).isEqualTo(10000);
+        }
+        long blockingNanos = System.nanoTime() - start;
+        executor.shutdown();
+        dataSource.close();
+
+        assertThat(count).isEqualTo(requests);
+        log.info("reactive {}ms extraThreads={}, blocking {}ms threads=256",
+                reactiveNanos / 1_000_000, reactiveThreads, blockingNanos / 1_000_000);
+    }
+}
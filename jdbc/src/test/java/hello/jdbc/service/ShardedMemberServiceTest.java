@@ -0,0 +1,180 @@
+package hello.jdbc.service;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyShardMigrationException;
+import hello.jdbc.repository.shard.Shard;
+import hello.jdbc.repository.shard.ShardRebalancer;
+import hello.jdbc.repository.shard.ShardedMemberRepository;
+import hello.jdbc.repository.shard.TransferSaga;
+import hello.jdbc.repository.shard.TransferSagaRepository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+@Slf4j
+class ShardedMemberServiceTest {
+
+    public static final String MEMBER_EX = "ex";
+
+    List<Shard> shards = new ArrayList<>();
+    ExecutorService executor;
+    ShardedMemberRepository memberRepository;
+    ShardedMemberService memberService;
+
+    @BeforeEach
+    void before() {
+        for (int i = 0; i < 3; i++) {
+            shards.add(newShard(i));
+        }
+        executor = Executors.newFixedThreadPool(3);
+        memberRepository = new ShardedMemberRepository(shards, executor);
+        memberService = new ShardedMemberService(memberRepository);
+    }
+
+    @AfterEach
+    void after() {
+        executor.shutdown();
+        for (Shard shard : shards) {
+            shard.getTemplate().update("drop table member");
+            shard.getTemplate().update("drop table transfer_saga");
+            shard.getTemplate().update("drop table transfer_saga_credit");
+        }
+    }
+
+    @Test
+    @DisplayName("같은 샤드 이체")
+    void sameShardTransfer() {
+        String fromId = "member0";
+        String toId = findMemberId(memberRepository.shardFor(fromId), true);
+        memberRepository.save(new Member(fromId, 10000));
+        memberRepository.save(new Member(toId, 10000));
+
+        memberService.accountTransfer(fromId, toId, 2000);
+
+        assertThat(memberRepository.findById(fromId).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(toId).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("다른 샤드 이체")
+    void crossShardTransfer() {
+        String fromId = "member0";
+        String toId = findMemberId(memberRepository.shardFor(fromId), false);
+        memberRepository.save(new Member(fromId, 10000));
+        memberRepository.save(new Member(toId, 10000));
+
+        memberService.accountTransfer(fromId, toId, 2000);
+
+        assertThat(memberRepository.findById(fromId).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(toId).getMoney()).isEqualTo(12000);
+        assertThat(sagaStatus(memberRepository.shardFor(fromId))).isEqualTo(TransferSagaRepository.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("출금 커밋 후 중단된 사가 - resumeSagas 로 입금을 한 번만 이어서 처리")
+    void resumeSaga() throws InterruptedException {
+        String fromId = "member0";
+        String toId = findMemberId(memberRepository.shardFor(fromId), false);
+        memberRepository.save(new Member(fromId, 10000));
+        memberRepository.save(new Member(toId, 10000));
+
+        //1단계(사가 기록 + 출금)만 커밋된 상태
+        Shard fromShard = memberRepository.shardFor(fromId);
+        fromShard.getTxTemplate().executeWithoutResult(status -> {
+            new TransferSagaRepository().insert(fromShard, new TransferSaga(
+                    "saga-1", fromId, toId, memberRepository.shardFor(toId).getName(), 2000));
+            fromShard.getRepository().addMoneyReturning(fromId, -2000);
+        });
+        Thread.sleep(10);
+
+        assertThat(memberService.resumeSagas(Duration.ZERO)).isEqualTo(1);
+        assertThat(memberService.resumeSagas(Duration.ZERO)).isZero();
+
+        assertThat(memberRepository.findById(fromId).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(toId).getMoney()).isEqualTo(12000);
+        assertThat(sagaStatus(fromShard)).isEqualTo(TransferSagaRepository.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("중단된 사가가 있으면 확장 거절 - resumeSagas 후 확장")
+    void rebalanceWithPendingSaga() {
+        String fromId = "member0";
+        String toId = findMemberId(memberRepository.shardFor(fromId), false);
+        memberRepository.save(new Member(fromId, 10000));
+        memberRepository.save(new Member(toId, 10000));
+
+        Shard fromShard = memberRepository.shardFor(fromId);
+        fromShard.getTxTemplate().executeWithoutResult(status -> {
+            new TransferSagaRepository().insert(fromShard, new TransferSaga(
+                    "saga-1", fromId, toId, memberRepository.shardFor(toId).getName(), 2000));
+            fromShard.getRepository().addMoneyReturning(fromId, -2000);
+        });
+
+        List<Shard> expanded = new ArrayList<>(shards);
+        expanded.add(newShard(3));
+        shards.add(expanded.get(3));
+        ShardRebalancer rebalancer = memberService.rebalancer();
+
+        assertThatThrownBy(() -> rebalancer.expand(expanded))
+                .isInstanceOf(MyShardMigrationException.class);
+        assertThat(memberRepository.isMigrating()).isFalse();
+
+        assertThat(memberService.resumeSagas(Duration.ZERO)).isEqualTo(1);
+        rebalancer.expand(expanded);
+
+        assertThat(memberRepository.findById(fromId).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(toId).getMoney()).isEqualTo(12000);
+        assertThat(sagaStatus(fromShard)).isEqualTo(TransferSagaRepository.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("다른 샤드 이체 중 예외 발생 - 보상 트랜잭션")
+    void crossShardTransferEx() {
+        String fromId = findMemberId(memberRepository.shardFor(MEMBER_EX), false);
+        memberRepository.save(new Member(fromId, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+
+        assertThatThrownBy(() -> memberService.accountTransfer(fromId, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memberRepository.findById(fromId).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+        assertThat(sagaStatus(memberRepository.shardFor(fromId))).isEqualTo(TransferSagaRepository.COMPENSATED);
+    }
+
+    private static Shard newShard(int i) {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:txShard" + i + ";DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        Shard shard = new Shard("txShard" + i, dataSource);
+        shard.getTemplate().update("create table member (member_id varchar(10) primary key, money integer not null default 0)");
+        new ResourceDatabasePopulator(new ClassPathResource("sql/transfer_saga.sql")).execute(dataSource);
+        return shard;
+    }
+
+    private static String sagaStatus(Shard fromShard) {
+        return fromShard.getTemplate().queryForObject("select status from transfer_saga", String.class);
+    }
+
+    private String findMemberId(Shard shard, boolean sameShard) {
+        for (int i = 1; ; i++) {
+            String memberId = "member" + i;
+            if ((memberRepository.shardFor(memberId) == shard) == sameShard) {
+                return memberId;
+            }
+        }
+    }
+}
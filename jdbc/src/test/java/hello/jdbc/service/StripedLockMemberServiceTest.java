@@ -0,0 +1,179 @@
+package hello.jdbc.service;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 인기 계좌 하나로 동시에 이체 - 작은 커넥션 풀에서 비교
+ * 공용 설정(MemberServiceTestConfig)과 롤백 정리를 쓰지 않는다.
+ * - 작업 스레드가 각자 트랜잭션을 커밋하므로 테스트 트랜잭션 안의 데이터는 보이지 않는다.
+ * - 커넥션 풀 크기(4)와 획득 타임아웃(250ms)이 비교 조건이라 전용 DataSource 가 필요하다. (DB 는 공용 URL)
+ * 정리는 이 테스트가 만든 회원만 지운다.
+ */
+@Slf4j
+@SpringBootTest
+class StripedLockMemberServiceTest {
+
+    static final String HOT_MEMBER = "hot";
+    static final int SENDERS = 16;
+    static final int TRANSFERS_PER_SENDER = 20;
+
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberServiceV4 memberService;
+    @Autowired
+    StripedLockMemberService lockingService;
+    @Autowired
+    AccountLockManager lockManager;
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        DataSource dataSource() {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(URL);
+            dataSource.setUsername(USERNAME);
+            dataSource.setPassword(PASSWORD);
+            dataSource.setMaximumPoolSize(4);
+            dataSource.setConnectionTimeout(250);
+            return dataSource;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(dataSource());
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV5(dataSource());
+        }
+
+        @Bean
+        MemberServiceV4 memberServiceV4() {
+            return new MemberServiceV4(memberRepository());
+        }
+
+        @Bean
+        AccountLockManager accountLockManager() {
+            return new AccountLockManager(64);
+        }
+
+        @Bean
+        StripedLockMemberService stripedLockMemberService() {
+            return new StripedLockMemberService(accountLockManager(), memberServiceV4());
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        memberRepository.save(new Member(HOT_MEMBER, 0));
+        for (int i = 0; i < SENDERS; i++) {
+            memberRepository.save(new Member(sender(i), 100000));
+        }
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(HOT_MEMBER);
+        for (int i = 0; i < SENDERS; i++) {
+            memberRepository.delete(sender(i));
+        }
+    }
+
+    @Test
+    void stripeOrder() {
+        AccountLockManager manager = new AccountLockManager(10);
+        assertThat(manager.getStripeCount()).isEqualTo(16);
+        //순서를 바꿔서 호출해도 같은 순서로 락을 잡는다 (교착 없음)
+        assertThat(manager.withLocks("memberA", "memberB", () -> "ok")).isEqualTo("ok");
+        assertThat(manager.withLocks("memberB", "memberA", () -> "ok")).isEqualTo("ok");
+        assertThat(manager.withLocks("memberA", "memberA", () -> "ok")).isEqualTo("ok");
+    }
+
+    /**
+     * 비교용 기준 - 검증하지 않고 기록만 한다.
+     * 락이 없으면 커넥션 획득 실패/락 충돌로 실패하거나, 조회 후 update 라서 갱신이 사라질 수 있다.
+     * 실제로 일어나는지는 스레드 스케줄링에 달려 있어서 단정하면 가끔 깨진다.
+     */
+    @Test
+    void hotAccountWithoutLock() throws Exception {
+        int failures = run((fromId) -> memberService.accountTransfer(fromId, HOT_MEMBER, 10));
+        int hotMoney = memberRepository.findById(HOT_MEMBER).getMoney();
+        int succeeded = SENDERS * TRANSFERS_PER_SENDER - failures;
+        log.info("without lock failures={}, hot money={}, expected={}, lost={}",
+                failures, hotMoney, succeeded * 10, succeeded * 10 - hotMoney);
+    }
+
+    @Test
+    void hotAccountWithStripedLock() throws Exception {
+        int failures = run((fromId) -> lockingService.accountTransfer(fromId, HOT_MEMBER, 10));
+
+        log.info("with lock failures={}, contended={}, totalWaitMs={}, maxWaitMs={}", failures,
+                lockManager.getContendedCount(),
+                TimeUnit.NANOSECONDS.toMillis(lockManager.getTotalWaitNanos()),
+                TimeUnit.NANOSECONDS.toMillis(lockManager.getMaxWaitNanos()));
+        assertThat(failures).isZero();
+        assertThat(memberRepository.findById(HOT_MEMBER).getMoney()).isEqualTo(SENDERS * TRANSFERS_PER_SENDER * 10);
+    }
+
+    private int run(Transfer transfer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < SENDERS; i++) {
+            String fromId = sender(i);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < TRANSFERS_PER_SENDER; j++) {
+                    try {
+                        transfer.execute(fromId);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        log.info("elapsedMs={}", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return failures.get();
+    }
+
+    private static String sender(int i) {
+        return "sender" + i;
+    }
+
+    @FunctionalInterface
+    interface Transfer {
+        void execute(String fromId);
+    }
+}
@@ -0,0 +1,155 @@
+package hello.jdbc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 공용 설정(MemberServiceTestConfig)을 쓴다.
+ * 시퀀서의 작성 스레드가 배치마다 커밋하므로 롤백 대신 이 테스트가 만든 회원만 지운다.
+ */
+@Slf4j
+@SpringBootTest
+@Import(MemberServiceTestConfig.class)
+class TransferSequencerTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+    static final int TRANSFERS = 2000;
+
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberServiceV4 memberService;
+    MemberRepositoryV5 memberRepository;
+    TransferSequencer sequencer;
+
+    @BeforeEach
+    void before() {
+        memberRepository = new MemberRepositoryV5(dataSource);
+        sequencer = new TransferSequencer(memberRepository, transactionManager, 4096, 256, Duration.ofMillis(2));
+
+        memberRepository.save(new Member(MEMBER_A, 100000));
+        memberRepository.save(new Member(MEMBER_B, 100000));
+        memberRepository.save(new Member(MEMBER_EX, 100000));
+    }
+
+    @AfterEach
+    void after() {
+        sequencer.close();
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+        memberRepository.delete(MEMBER_EX);
+    }
+
+    @Test
+    void groupCommit() {
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            futures.add(sequencer.submitTransfer(MEMBER_A, MEMBER_B, 1));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        int maxBatch = futures.stream().mapToInt(f -> f.join().getBatchSize()).max().orElse(0);
+        log.info("max batch size={}", maxBatch);
+        assertThat(maxBatch).isGreaterThan(1);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(100000 - TRANSFERS);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(100000 + TRANSFERS);
+    }
+
+    @Test
+    void failedTransferDoesNotFailBatch() {
+        CompletableFuture<TransferResult> ok = sequencer.submitTransfer(MEMBER_A, MEMBER_B, 1000);
+        CompletableFuture<TransferResult> ex = sequencer.submitTransfer(MEMBER_A, MEMBER_EX, 1000);
+        CompletableFuture<TransferResult> missing = sequencer.submitTransfer(MEMBER_A, "none", 1000);
+
+        assertThat(ok).succeedsWithin(Duration.ofSeconds(5));
+        assertThat(ex).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+        assertThat(missing).failsWithin(Duration.ofSeconds(5));
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(99000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(101000);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(100000);
+    }
+
+    @Test
+    void closeCompletesEveryFuture() throws Exception {
+        List<CompletableFuture<TransferResult>> futures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread producer = new Thread(() -> {
+                for (int j = 0; j < 500; j++) {
+                    futures.add(sequencer.submitTransfer(MEMBER_A, MEMBER_B, 1));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        sequencer.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        //close 와 경합한 이체도 반영되거나 거절되어야 한다 (영원히 대기하지 않음)
+        int applied = 0;
+        int rejected = 0;
+        for (CompletableFuture<TransferResult> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                applied++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+                rejected++;
+            }
+        }
+        log.info("applied={}, rejected={}", applied, rejected);
+        assertThat(applied + rejected).isEqualTo(2000);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(100000 - applied);
+    }
+
+    @Test
+    void compareWithAccountTransfer() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            txTemplate.executeWithoutResult(status -> memberService.accountTransfer(MEMBER_A, MEMBER_B, 1));
+        }
+        long serviceMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            futures.add(sequencer.submitTransfer(MEMBER_A, MEMBER_B, 1));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long sequencerMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        log.info("transfers={}, accountTransfer={}ms, sequencer={}ms", TRANSFERS, serviceMs, sequencerMs);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(100000 - TRANSFERS * 2);
+    }
+}